@@ -2,12 +2,18 @@ package ru.practicum.shareit.booking;
 
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.dto.WaitlistDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.BookingView;
+import ru.practicum.shareit.booking.model.WaitlistEntry;
 
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.model.User;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
 public class BookingMapper {
 
     public static Booking toBooking(BookingDtoRequest bookingDtoRequest, User owner, Item item) {
@@ -17,6 +23,8 @@ public class BookingMapper {
                 .status(BookingStatus.WAITING)
                 .booker(owner)
                 .item(item)
+                .ownerId(item.getOwner().getId())
+                .created(LocalDateTime.now())
                 .build();
     }
 
@@ -30,4 +38,36 @@ public class BookingMapper {
                 .status(booking.getStatus())
                 .build();
     }
+
+    public static BookingDtoResponse toBookingDtoResponse(BookingView booking) {
+        return BookingDtoResponse.builder()
+                .id(booking.getId())
+                .start(booking.getStart())
+                .end(booking.getEnd())
+                .item(new BookingDtoResponse.ItemDtoShort(booking.getItemId(), booking.getItemName()))
+                .booker(new BookingDtoResponse.UserDtoShort(booking.getBookerId()))
+                .status(booking.getStatus())
+                .build();
+    }
+
+    public static WaitlistEntry toWaitlistEntry(BookingDtoRequest bookingDtoRequest, long bookerId) {
+        return WaitlistEntry.builder()
+                .itemId(bookingDtoRequest.getItemId())
+                .bookerId(bookerId)
+                .start(bookingDtoRequest.getStart())
+                .end(bookingDtoRequest.getEnd())
+                // точность столбца: очередь упорядочена по created, значение в сущности не должно расходиться с БД
+                .created(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .build();
+    }
+
+    public static WaitlistDto toWaitlistDto(WaitlistEntry entry) {
+        return WaitlistDto.builder()
+                .id(entry.getId())
+                .itemId(entry.getItemId())
+                .start(entry.getStart())
+                .end(entry.getEnd())
+                .created(entry.getCreated())
+                .build();
+    }
 }
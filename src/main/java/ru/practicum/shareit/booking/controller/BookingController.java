@@ -6,6 +6,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.dto.WaitlistDto;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.group.Create;
@@ -46,6 +47,36 @@ public class BookingController {
 
     }
 
+    @PatchMapping("/{bookingId}/cancel")
+    public BookingDtoResponse cancel(@PathVariable long bookingId,
+                                     @RequestHeader(USER_ID) long userId
+    ) {
+        log.info("Запрос на отмену бронирования {} пользователем с id {}", bookingId, userId);
+        return bookingService.cancel(bookingId, userId);
+    }
+
+    @PostMapping("/waitlist")
+    public WaitlistDto joinWaitlist(@Validated(Create.class) @RequestBody BookingDtoRequest bookingDto,
+                                    @RequestHeader(USER_ID) long userId
+    ) {
+        log.info("Запрос на постановку в очередь ожидания {} пользователем с id {}", bookingDto, userId);
+        return bookingService.joinWaitlist(bookingDto, userId);
+    }
+
+    @GetMapping("/waitlist")
+    public List<WaitlistDto> findWaitlist(@RequestHeader(USER_ID) long userId) {
+        log.info("Запрос на получение очередей ожидания пользователя с id {}", userId);
+        return bookingService.findWaitlist(userId);
+    }
+
+    @DeleteMapping("/waitlist/{entryId}")
+    public void leaveWaitlist(@PathVariable long entryId,
+                              @RequestHeader(USER_ID) long userId
+    ) {
+        log.info("Запрос на выход из очереди ожидания {} пользователем с id {}", entryId, userId);
+        bookingService.leaveWaitlist(entryId, userId);
+    }
+
     @GetMapping("/{bookingId}")
     public BookingDtoResponse getBooking(
             @PathVariable long bookingId,
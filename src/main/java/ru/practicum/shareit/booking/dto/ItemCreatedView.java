@@ -0,0 +1,9 @@
+package ru.practicum.shareit.booking.dto;
+
+import java.time.LocalDateTime;
+
+public interface ItemCreatedView {
+    Long getItemId();
+
+    LocalDateTime getCreated();
+}
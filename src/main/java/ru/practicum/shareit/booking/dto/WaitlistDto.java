@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class WaitlistDto {
+    private long id;
+    private long itemId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private LocalDateTime created;
+}
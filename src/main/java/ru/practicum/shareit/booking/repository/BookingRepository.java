@@ -2,41 +2,69 @@ package ru.practicum.shareit.booking.repository;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.dto.BookerItemView;
+import ru.practicum.shareit.booking.dto.ItemCreatedView;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.item.model.Item;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    List<Booking> findAllByBookerIdOrderByStartDesc(long bookerId, PageRequest pageRequest);
+    String COLUMNS = "id, start_date, end_date, booker_id, item_id, owner_id, status, created";
 
-    List<Booking> findAllByBookerIdAndStartAfterOrderByStartDesc(long bookerId, LocalDateTime start,PageRequest pageRequest);
+    boolean existsByBookerIdAndItemIdAndEndBefore(long bookerId, long itemId, LocalDateTime end);
 
-    List<Booking> findAllByBookerIdAndEndBeforeOrderByStartDesc(long bookerId, LocalDateTime end,PageRequest pageRequest);
+    @Query("SELECT b.item.id FROM Booking b WHERE b.id = ?1")
+    Optional<Long> findItemIdById(long bookingId);
 
-    List<Booking> findAllByBookerIdAndEndBeforeOrderByStartDesc(long bookerId, LocalDateTime end);
+    boolean existsByItemIdAndStatusInAndStartBeforeAndEndAfter(long itemId, Collection<BookingStatus> statuses,
+                                                              LocalDateTime end, LocalDateTime start);
 
-    List<Booking> findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(long bookerId, LocalDateTime start, LocalDateTime end,PageRequest pageRequest);
+    List<Booking> findAllByItemInAndStatusOrderByStartAsc(List<Item> items, BookingStatus status);
 
-    List<Booking> findAllByBookerIdAndStatusOrderByStartDesc(long bookerId, BookingStatus status,PageRequest pageRequest);
+    Booking findFirstByItemIdAndStatusAndStartGreaterThanOrderByStart(long itemId, BookingStatus status, LocalDateTime startDate);
 
-    List<Booking> findAllByItemOwnerIdOrderByStartDesc(long bookerId,PageRequest pageRequest);
+    Booking findFirstByItemIdAndStatusAndStartLessThanEqualOrderByStartDesc(long itemId, BookingStatus status, LocalDateTime startDate);
 
-    List<Booking> findAllByItemOwnerIdAndStartAfterOrderByStartDesc(long bookerId, LocalDateTime start,PageRequest pageRequest);
+    @Query(value = "SELECT booker_id AS \"bookerId\", item_id AS \"itemId\" FROM bookings WHERE status = ?1 " +
+            "UNION SELECT booker_id, item_id FROM bookings_archive WHERE status = ?1", nativeQuery = true)
+    List<BookerItemView> findDistinctBookerItemPairs(String status);
 
-    List<Booking> findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(long bookerId, LocalDateTime end,PageRequest pageRequest);
+    @Query("SELECT b.item.id AS itemId, b.created AS created FROM Booking b WHERE b.status = ?1 AND b.created >= ?2")
+    List<ItemCreatedView> findItemCreatedByStatusSince(BookingStatus status, LocalDateTime since);
 
-    List<Booking> findAllByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(long bookerId, LocalDateTime start, LocalDateTime end,PageRequest pageRequest);
+    // Запросы ниже дочитывают bookings_archive, куда BookingArchiver переносит давно закончившиеся бронирования
 
-    List<Booking> findAllByItemOwnerIdAndStatusOrderByStartDesc(long bookerId, BookingStatus status,PageRequest pageRequest);
+    @Query(value = "SELECT * FROM bookings_archive WHERE id = ?1", nativeQuery = true)
+    Optional<Booking> findArchivedById(long id);
 
-    List<Booking> findAllByItemInAndStatusOrderByStartAsc(List<Item> items, BookingStatus status);
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM bookings_archive WHERE booker_id = ?1 AND item_id = ?2 " +
+            "FETCH FIRST 1 ROWS ONLY) b", nativeQuery = true)
+    long countArchivedByBookerIdAndItemId(long bookerId, long itemId);
 
-    Booking findFirstByItemIdAndStatusAndStartGreaterThanOrderByStart(long itemId, BookingStatus status, LocalDateTime startDate);
+    @Query(value = "SELECT " + COLUMNS + " FROM bookings WHERE booker_id = ?1 " +
+            "UNION ALL SELECT " + COLUMNS + " FROM bookings_archive WHERE booker_id = ?1 " +
+            "ORDER BY start_date DESC", nativeQuery = true)
+    List<Booking> findAllByBookerIdWithArchive(long bookerId, PageRequest pageRequest);
 
-    Booking findFirstByItemIdAndStatusAndStartLessThanEqualOrderByStartDesc(long itemId, BookingStatus status, LocalDateTime startDate);
-}
+    @Query(value = "SELECT " + COLUMNS + " FROM bookings WHERE booker_id = ?1 AND end_date < ?2 " +
+            "UNION ALL SELECT " + COLUMNS + " FROM bookings_archive WHERE booker_id = ?1 AND end_date < ?2 " +
+            "ORDER BY start_date DESC", nativeQuery = true)
+    List<Booking> findAllByBookerIdAndEndBeforeWithArchive(long bookerId, LocalDateTime end, PageRequest pageRequest);
 
+    @Query(value = "SELECT " + COLUMNS + " FROM bookings WHERE owner_id = ?1 " +
+            "UNION ALL SELECT " + COLUMNS + " FROM bookings_archive WHERE owner_id = ?1 " +
+            "ORDER BY start_date DESC", nativeQuery = true)
+    List<Booking> findAllByOwnerIdWithArchive(long ownerId, PageRequest pageRequest);
+
+    @Query(value = "SELECT " + COLUMNS + " FROM bookings WHERE owner_id = ?1 AND end_date < ?2 " +
+            "UNION ALL SELECT " + COLUMNS + " FROM bookings_archive WHERE owner_id = ?1 AND end_date < ?2 " +
+            "ORDER BY start_date DESC", nativeQuery = true)
+    List<Booking> findAllByOwnerIdAndEndBeforeWithArchive(long ownerId, LocalDateTime end, PageRequest pageRequest);
+}
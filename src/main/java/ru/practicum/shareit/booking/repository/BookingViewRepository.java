@@ -0,0 +1,57 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.BookingView;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingViewRepository extends JpaRepository<BookingView, Long> {
+
+    List<BookingView> findAllByBookerIdOrderByStartDesc(long bookerId, PageRequest pageRequest);
+
+    List<BookingView> findAllByBookerIdAndStartAfterOrderByStartDesc(long bookerId, LocalDateTime start, PageRequest pageRequest);
+
+    List<BookingView> findAllByBookerIdAndEndBeforeOrderByStartDesc(long bookerId, LocalDateTime end, PageRequest pageRequest);
+
+    List<BookingView> findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(long bookerId, LocalDateTime start,
+                                                                                 LocalDateTime end, PageRequest pageRequest);
+
+    List<BookingView> findAllByBookerIdAndStatusOrderByStartDesc(long bookerId, BookingStatus status, PageRequest pageRequest);
+
+    List<BookingView> findAllByOwnerIdOrderByStartDesc(long ownerId, PageRequest pageRequest);
+
+    List<BookingView> findAllByOwnerIdAndStartAfterOrderByStartDesc(long ownerId, LocalDateTime start, PageRequest pageRequest);
+
+    List<BookingView> findAllByOwnerIdAndEndBeforeOrderByStartDesc(long ownerId, LocalDateTime end, PageRequest pageRequest);
+
+    List<BookingView> findAllByOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(long ownerId, LocalDateTime start,
+                                                                                LocalDateTime end, PageRequest pageRequest);
+
+    List<BookingView> findAllByOwnerIdAndStatusOrderByStartDesc(long ownerId, BookingStatus status, PageRequest pageRequest);
+
+    @Modifying
+    @Query(value = "INSERT INTO booking_view (id, start_date, end_date, status, item_id, item_name, booker_id, owner_id) " +
+            "VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8)", nativeQuery = true)
+    void insert(long id, LocalDateTime start, LocalDateTime end, String status, long itemId, String itemName,
+                long bookerId, long ownerId);
+
+    // вызывается в транзакции, сохранившей бронирование; id уже выдан последовательностью
+    default void insert(Booking booking) {
+        insert(booking.getId(), booking.getStart(), booking.getEnd(), booking.getStatus().name(),
+                booking.getItem().getId(), booking.getItem().getName(), booking.getBooker().getId(), booking.getOwnerId());
+    }
+
+    @Modifying
+    @Query(value = "UPDATE booking_view SET status = ?2 WHERE id = ?1", nativeQuery = true)
+    void updateStatus(long bookingId, String status);
+
+    @Modifying
+    @Query(value = "UPDATE booking_view SET item_name = ?2 WHERE item_id = ?1", nativeQuery = true)
+    void renameItem(long itemId, String name);
+}
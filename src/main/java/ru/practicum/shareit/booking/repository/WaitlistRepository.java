@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.model.WaitlistEntry;
+
+import java.util.List;
+
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    List<WaitlistEntry> findAllByBookerIdOrderByCreated(long bookerId);
+
+    List<WaitlistEntry> findAllByItemIdOrderByCreatedAscIdAsc(long itemId);
+
+    long countByItemId(long itemId);
+
+    // 0, если запись уже продвинута или удалена другим запросом
+    @Modifying
+    @Query("DELETE FROM WaitlistEntry w WHERE w.id = ?1")
+    int deleteEntry(long id);
+}
@@ -0,0 +1,147 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.util.TimingWheel;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Срок подтверждения бронирования владельцем. Сроки всех бронирований в статусе WAITING держит
+ * иерархическое колесо таймеров: постановка при создании и снятие при ответе владельца за O(1),
+ * при старте колесо заполняется из БД. Истекшие бронирования переводятся в CANCELED пакетными UPDATE
+ * вместо периодического опроса таблицы, освободившиеся даты сразу отдаются очереди ожидания вещи.
+ */
+@Slf4j
+@Component
+public class ApprovalExpiry {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ItemWaitlist itemWaitlist;
+    private final ItemLocks itemLocks;
+    private final Duration timeout;
+    private final int batchSize;
+    private final boolean enabled;
+    private final TimingWheel<Long> wheel;
+
+    public ApprovalExpiry(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          ItemWaitlist itemWaitlist, ItemLocks itemLocks,
+                          @Value("${shareit.bookings.approval.timeout:P2D}") Duration timeout,
+                          @Value("${shareit.bookings.approval.tick:PT1S}") Duration tick,
+                          @Value("${shareit.bookings.approval.batch-size:500}") int batchSize,
+                          @Value("${shareit.bookings.approval.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.itemWaitlist = itemWaitlist;
+        this.itemLocks = itemLocks;
+        this.timeout = timeout;
+        this.batchSize = batchSize;
+        this.enabled = enabled;
+        this.wheel = new TimingWheel<>(tick.toMillis(), WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        jdbcTemplate.query("SELECT id, created FROM bookings WHERE status = 'WAITING'",
+                (RowCallbackHandler) rs -> schedule(rs.getLong("id"), rs.getTimestamp("created").toLocalDateTime()));
+        log.info("Сроки подтверждения бронирований загружены : {} шт.", size());
+    }
+
+    public void onCreated(long bookingId, LocalDateTime created) {
+        TransactionHooks.afterCommit(() -> schedule(bookingId, created));
+    }
+
+    public void onDecided(long bookingId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (wheel) {
+                wheel.cancel(bookingId);
+            }
+        });
+    }
+
+    public boolean isExpired(LocalDateTime created, LocalDateTime now) {
+        return created.plus(timeout).isBefore(now);
+    }
+
+    public int size() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.bookings.approval.tick:PT1S}")
+    public void run() {
+        if (enabled) {
+            expire(System.currentTimeMillis());
+        }
+    }
+
+    public int expire(long nowMillis) {
+        List<Long> expired;
+        synchronized (wheel) {
+            expired = wheel.advance(nowMillis);
+        }
+        int canceled = 0;
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> ids = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                canceled += transactionTemplate.execute(status -> cancel(ids));
+            } catch (DataAccessException e) {
+                // неотмененные бронирования возвращаются в колесо и уйдут следующим тиком
+                log.warn("Не удалось отменить просроченные бронирования : {}", e.getMessage());
+                synchronized (wheel) {
+                    expired.subList(from, expired.size()).forEach(id -> wheel.schedule(id, nowMillis));
+                }
+                break;
+            }
+        }
+        if (canceled > 0) {
+            log.info("Отменили бронирования без ответа владельца дольше {} : {} шт.", timeout, canceled);
+        }
+        return canceled;
+    }
+
+    // отмена и продвижение очередей ожидания освободившихся вещей идут одной транзакцией
+    private int cancel(List<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        List<Long> itemIds = jdbcTemplate.queryForList("SELECT DISTINCT item_id FROM bookings " +
+                "WHERE status = 'WAITING' AND id IN (:ids) ORDER BY item_id", params, Long.class);
+        itemIds.forEach(itemLocks::lock);
+        int updated = jdbcTemplate.update("UPDATE bookings SET status = 'CANCELED' " +
+                "WHERE status = 'WAITING' AND id IN (:ids)", params);
+        jdbcTemplate.update("UPDATE booking_view SET status = 'CANCELED' " +
+                "WHERE status = 'WAITING' AND id IN (:ids)", params);
+        LocalDateTime now = LocalDateTime.now();
+        for (Long itemId : itemIds) {
+            for (Booking promoted : itemWaitlist.promote(itemId, now)) {
+                onCreated(promoted.getId(), promoted.getCreated());
+            }
+        }
+        return updated;
+    }
+
+    private void schedule(long bookingId, LocalDateTime created) {
+        long deadline = Timestamp.valueOf(created.plus(timeout)).getTime();
+        synchronized (wheel) {
+            wheel.schedule(bookingId, deadline);
+        }
+    }
+}
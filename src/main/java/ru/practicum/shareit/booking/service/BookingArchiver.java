@@ -0,0 +1,167 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Перенос бронирований, закончившихся раньше горизонта, в bookings_archive.
+ * На Postgres bookings секционирована помесячно по end_date: архиватор заранее создает секции на
+ * months-ahead месяцев вперед, а секции, целиком лежащие старше горизонта, отсоединяет, копирует в архив
+ * и удаляет без построчных DELETE по индексам горячей таблицы. Без секционирования (H2), а также для строк
+ * секции по умолчанию перенос идет пакетами по id, каждый пакет — отдельная транзакция.
+ */
+@Slf4j
+@Component
+public class BookingArchiver {
+
+    private static final String COLUMNS = "id, start_date, end_date, booker_id, item_id, owner_id, status, created";
+    private static final String PREFIX = "bookings_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgres;
+    private final boolean enabled;
+    private final Duration horizon;
+    private final int monthsAhead;
+    private final int batchSize;
+
+    public BookingArchiver(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                           PlatformTransactionManager transactionManager, DataSource dataSource,
+                           @Value("${shareit.bookings.archive.enabled:true}") boolean enabled,
+                           @Value("${shareit.bookings.archive.horizon:P365D}") Duration horizon,
+                           @Value("${shareit.bookings.archive.months-ahead:3}") int monthsAhead,
+                           @Value("${shareit.bookings.archive.batch-size:1000}") int batchSize)
+            throws MetaDataAccessException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        this.postgres = "PostgreSQL".equals(product);
+        this.enabled = enabled;
+        this.horizon = horizon;
+        this.monthsAhead = monthsAhead;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.bookings.archive.interval:PT1H}",
+            initialDelayString = "${shareit.bookings.archive.interval:PT1H}")
+    public void run() {
+        if (enabled) {
+            archive(LocalDateTime.now());
+        }
+    }
+
+    public long archive(LocalDateTime now) {
+        LocalDateTime cutoff = now.minus(horizon);
+        long moved = 0;
+        String rowsTable = "bookings";
+        if (postgres && isPartitioned()) {
+            createPartitions(YearMonth.from(now));
+            moved += detachPartitions(cutoff);
+            rowsTable = "bookings_default";
+        }
+        moved += moveRows(rowsTable, cutoff);
+        log.info("Перенесли в архив бронирования, закончившиеся до {} : {} шт.", cutoff, moved);
+        return moved;
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT relkind = 'p' FROM pg_class WHERE oid = 'bookings'::regclass", Boolean.class));
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'bookings'::regclass AND c.relname LIKE 'bookings\\_p%'", String.class);
+    }
+
+    // Строки будущей секции, успевшие попасть в секцию по умолчанию, переносятся в нее до ATTACH
+    private void createPartitions(YearMonth current) {
+        List<String> existing = partitions();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = PREFIX + month.format(SUFFIX);
+            if (existing.contains(name)) {
+                continue;
+            }
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE bookings INCLUDING DEFAULTS)");
+                jdbcTemplate.update("WITH moved AS (DELETE FROM bookings_default WHERE end_date >= ? AND end_date < ? " +
+                        "RETURNING " + COLUMNS + ") INSERT INTO " + name + " (" + COLUMNS + ") SELECT " + COLUMNS +
+                        " FROM moved", from, to);
+                jdbcTemplate.execute(String.format("ALTER TABLE bookings ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+                        name, from, to));
+                // DELETE из секции по умолчанию снял периоды перенесенных строк, а у новой таблицы до ATTACH
+                // не было триггера
+                jdbcTemplate.update("INSERT INTO approved_periods (booking_id, item_id, period) " +
+                        "SELECT id, item_id, tsrange(start_date, end_date) FROM " + name + " WHERE status = 'APPROVED'");
+            });
+            log.info("Создали секцию бронирований {}", name);
+        }
+    }
+
+    private long detachPartitions(LocalDateTime cutoff) {
+        long moved = 0;
+        for (String name : partitions()) {
+            YearMonth month = YearMonth.parse(name.substring(PREFIX.length()), SUFFIX);
+            if (month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                continue;
+            }
+            Integer rows = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("ALTER TABLE bookings DETACH PARTITION " + name);
+                int inserted = jdbcTemplate.update("INSERT INTO bookings_archive (" + COLUMNS + ") SELECT " + COLUMNS +
+                        " FROM " + name);
+                jdbcTemplate.update("DELETE FROM approved_periods WHERE booking_id IN (SELECT id FROM " + name + ")");
+                jdbcTemplate.update("DELETE FROM booking_view WHERE id IN (SELECT id FROM " + name + ")");
+                jdbcTemplate.execute("DROP TABLE " + name);
+                return inserted;
+            });
+            moved += rows == null ? 0 : rows;
+            log.info("Перенесли в архив секцию бронирований {} : {} шт.", name, rows);
+        }
+        return moved;
+    }
+
+    private long moveRows(String table, LocalDateTime cutoff) {
+        long moved = 0;
+        int rows;
+        do {
+            rows = transactionTemplate.execute(status -> {
+                List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE end_date < ? " +
+                        "ORDER BY id FETCH FIRST ? ROWS ONLY FOR UPDATE", Long.class, cutoff, batchSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+                namedJdbcTemplate.update("INSERT INTO bookings_archive (" + COLUMNS + ") SELECT " + COLUMNS +
+                        " FROM " + table + " WHERE id IN (:ids)", params);
+                namedJdbcTemplate.update("DELETE FROM " + table + " WHERE id IN (:ids)", params);
+                namedJdbcTemplate.update("DELETE FROM booking_view WHERE id IN (:ids)", params);
+                return ids.size();
+            });
+            moved += rows;
+        } while (rows == batchSize);
+        return moved;
+    }
+}
@@ -3,6 +3,7 @@ package ru.practicum.shareit.booking.service;
 
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.dto.WaitlistDto;
 import ru.practicum.shareit.booking.model.BookingState;
 
 import java.util.List;
@@ -13,9 +14,17 @@ public interface BookingService {
 
     BookingDtoResponse approve(long bookingId, Boolean approved, long userId);
 
+    BookingDtoResponse cancel(long bookingId, long userId);
+
     BookingDtoResponse getBooking(long bookingId, long userId);
 
     List<BookingDtoResponse> findAllByBookerId(BookingState bookingState, long userId,int from,int size);
 
     List<BookingDtoResponse> findAllByOwnerId(BookingState bookingState, long userId,int from,int size);
+
+    WaitlistDto joinWaitlist(BookingDtoRequest bookingDtoRequest, long userId);
+
+    List<WaitlistDto> findWaitlist(long userId);
+
+    void leaveWaitlist(long entryId, long userId);
 }
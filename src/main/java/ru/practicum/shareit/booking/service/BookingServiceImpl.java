@@ -2,26 +2,37 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.BookingMapper;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.dto.WaitlistDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.BookingView;
+import ru.practicum.shareit.booking.model.WaitlistEntry;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingViewRepository;
+import ru.practicum.shareit.booking.repository.WaitlistRepository;
 import ru.practicum.shareit.exception.*;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemCoBookingIndex;
+import ru.practicum.shareit.item.service.ItemPopularityTracker;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistenceIndex;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 
@@ -31,36 +42,54 @@ import java.util.stream.Collectors;
 public class BookingServiceImpl implements BookingService {
 
     private final BookingRepository bookingRepository;
+    private final BookingViewRepository bookingViewRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final UserExistenceIndex userExistenceIndex;
+    private final ItemPopularityTracker popularityTracker;
+    private final ItemCoBookingIndex coBookingIndex;
+    private final ApprovalExpiry approvalExpiry;
+    private final ItemWaitlist itemWaitlist;
+    private final ItemLocks itemLocks;
+    private final WaitlistRepository waitlistRepository;
+    private final Duration archiveHorizon;
 
     @Autowired
-    public BookingServiceImpl(BookingRepository bookingRepository, ItemRepository itemRepository, UserRepository userRepository) {
+    public BookingServiceImpl(BookingRepository bookingRepository, BookingViewRepository bookingViewRepository,
+                              ItemRepository itemRepository,
+                              UserRepository userRepository, UserExistenceIndex userExistenceIndex,
+                              ItemPopularityTracker popularityTracker,
+                              ItemCoBookingIndex coBookingIndex,
+                              ApprovalExpiry approvalExpiry, ItemWaitlist itemWaitlist, ItemLocks itemLocks,
+                              WaitlistRepository waitlistRepository,
+                              @Value("${shareit.bookings.archive.horizon:P365D}") Duration archiveHorizon) {
         this.bookingRepository = bookingRepository;
+        this.bookingViewRepository = bookingViewRepository;
         this.itemRepository = itemRepository;
         this.userRepository = userRepository;
+        this.userExistenceIndex = userExistenceIndex;
+        this.popularityTracker = popularityTracker;
+        this.coBookingIndex = coBookingIndex;
+        this.approvalExpiry = approvalExpiry;
+        this.itemWaitlist = itemWaitlist;
+        this.itemLocks = itemLocks;
+        this.waitlistRepository = waitlistRepository;
+        this.archiveHorizon = archiveHorizon;
     }
 
     @Override
     public BookingDtoResponse create(BookingDtoRequest bookingDtoRequest, long userId) {
         long itemId = bookingDtoRequest.getItemId();
-        Item item = itemRepository.findById(itemId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Вещь с id %d не существует", itemId))
-        );
-        User user = userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId))
-        );
-        if (!item.getAvailable()) {
-            throw new ValidationException("Бронирование недоступной вещи запрещено");
-        }
-        if (item.getOwner().getId().equals(userId)) {
-            throw new BookOwnItemsException("Бронировать собственные вещи запрещено");
-        }
-        if (!bookingDtoRequest.getEnd().isAfter(bookingDtoRequest.getStart())) {
-            throw new ValidationException("Дата начала бронирования должна быть раньше даты возврата");
+        Item item = checkBookable(bookingDtoRequest, userId);
+        itemLocks.lock(itemId);
+        if (itemWaitlist.isOccupied(itemId, bookingDtoRequest.getStart(), bookingDtoRequest.getEnd())) {
+            throw new ConflictException("Вещь уже забронирована на эти даты, можно встать в очередь ожидания");
         }
+        User user = userRepository.getReferenceById(userId);
         Booking booking = bookingRepository.save(BookingMapper.toBooking(bookingDtoRequest, user, item));
+        bookingViewRepository.insert(booking);
         log.info("Сохраняем в БД новое бронирование {}", booking);
+        approvalExpiry.onCreated(booking.getId(), booking.getCreated());
         BookingDtoResponse bookingDtoResponse = BookingMapper.toBookingDtoResponse(booking);
         log.info("Возвращаем в контроллер созданное бронирование {}", bookingDtoResponse);
         return bookingDtoResponse;
@@ -69,35 +98,88 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public BookingDtoResponse approve(long bookingId, Boolean approved, long userId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow(
+        // статус читается уже под блокировкой вещи, иначе два ответа владельца или отказ с продвижением очереди
+        // могут разойтись с параллельным созданием бронирования
+        long itemId = bookingRepository.findItemIdById(bookingId).orElseThrow(
                 () -> new EntityNotFoundException(String.format("Бронирование с id %d не существует", bookingId))
         );
-        User user = userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId))
+        itemLocks.lock(itemId);
+        Booking booking = bookingRepository.findById(bookingId).orElseThrow(
+                () -> new EntityNotFoundException(String.format("Бронирование с id %d не существует", bookingId))
         );
-        if (!booking.getItem().getOwner().getId().equals(user.getId())) {
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId));
+        }
+        if (!booking.getItem().getOwner().getId().equals(userId)) {
             throw new EntityNotFoundException("Подтвердить бронирование может только собственник вещи");
         }
         if (booking.getStatus() != BookingStatus.WAITING) {
             throw new ValidationException("Вещь уже забронирована");
         }
+        if (approvalExpiry.isExpired(booking.getCreated(), LocalDateTime.now())) {
+            throw new ValidationException("Срок подтверждения бронирования истек");
+        }
         booking.setStatus(approved ? BookingStatus.APPROVED : BookingStatus.REJECTED);
-        Booking updateBooking = bookingRepository.save(booking);
+        Booking updateBooking;
+        try {
+            // на Postgres пересечение подтвержденных бронирований запрещено ограничением, поэтому запись
+            // отправляется в БД сразу, чтобы нарушение стало понятным ответом, а не ошибкой коммита
+            updateBooking = bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("Вещь уже забронирована на эти даты");
+        }
+        bookingViewRepository.updateStatus(bookingId, updateBooking.getStatus().name());
+        approvalExpiry.onDecided(bookingId);
         log.info("Сохраняем в БД обновленное бронирование {}", updateBooking);
+        if (approved) {
+            popularityTracker.onApproved(updateBooking.getItem().getId());
+            coBookingIndex.onApproved(updateBooking.getBooker().getId(), updateBooking.getItem().getId());
+        } else {
+            promoteWaitlist(updateBooking.getItem().getId());
+        }
         BookingDtoResponse bookingDtoResponse = BookingMapper.toBookingDtoResponse(updateBooking);
         log.info("Возвращаем в контроллер обновленное бронирование с новым статусом {}", bookingDtoResponse);
         return bookingDtoResponse;
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public BookingDtoResponse getBooking(long bookingId, long userId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow(
+    public BookingDtoResponse cancel(long bookingId, long userId) {
+        long itemId = bookingRepository.findItemIdById(bookingId).orElseThrow(
                 () -> new EntityNotFoundException(String.format("Бронирование с id %d не существует", bookingId))
         );
-        userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId))
+        itemLocks.lock(itemId);
+        Booking booking = bookingRepository.findById(bookingId).orElseThrow(
+                () -> new EntityNotFoundException(String.format("Бронирование с id %d не существует", bookingId))
         );
+        if (!booking.getBooker().getId().equals(userId)) {
+            throw new EntityNotFoundException("Отменить бронирование может только его автор");
+        }
+        if (booking.getStatus() != BookingStatus.WAITING && booking.getStatus() != BookingStatus.APPROVED) {
+            throw new ValidationException("Отменить можно только ожидающее или подтвержденное бронирование");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (!booking.getEnd().isAfter(now)) {
+            throw new ValidationException("Завершенное бронирование отменить нельзя");
+        }
+        booking.setStatus(BookingStatus.CANCELED);
+        Booking updateBooking = bookingRepository.save(booking);
+        bookingViewRepository.updateStatus(bookingId, BookingStatus.CANCELED.name());
+        approvalExpiry.onDecided(bookingId);
+        log.info("Бронирование {} отменено автором", updateBooking);
+        promoteWaitlist(updateBooking.getItem().getId());
+        return BookingMapper.toBookingDtoResponse(updateBooking);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookingDtoResponse getBooking(long bookingId, long userId) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .or(() -> bookingRepository.findArchivedById(bookingId))
+                .orElseThrow(() -> new EntityNotFoundException(
+                        String.format("Бронирование с id %d не существует", bookingId)));
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId));
+        }
         if (!booking.getBooker().getId().equals(userId) && !booking.getItem().getOwner().getId().equals(userId)) {
             throw new EntityNotFoundException("Смотреть информацию о вещи может владелец вещи или автор бронирования");
         }
@@ -109,37 +191,42 @@ public class BookingServiceImpl implements BookingService {
     @Override
     @Transactional(readOnly = true)
     public List<BookingDtoResponse> findAllByBookerId(BookingState bookingState, long userId,int from,int size) {
-        userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId))
-        );
-        Collection<Booking> bookings;
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId));
+        }
+        List<BookingDtoResponse> bookingsDto;
         LocalDateTime now = LocalDateTime.now();
         PageRequest pageRequest = PageRequest.of(from / size,size);
         switch (bookingState) {
             case CURRENT:
-                bookings = bookingRepository.findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(userId, now, now,pageRequest);
+                bookingsDto = toDto(bookingViewRepository.findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(
+                        userId, now, now, pageRequest));
                 break;
             case REJECTED:
-                bookings = bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(userId, BookingStatus.REJECTED,pageRequest);
+                bookingsDto = toDto(bookingViewRepository.findAllByBookerIdAndStatusOrderByStartDesc(userId,
+                        BookingStatus.REJECTED, pageRequest));
                 break;
             case WAITING:
-                bookings = bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(userId, BookingStatus.WAITING,pageRequest);
+                bookingsDto = toDto(bookingViewRepository.findAllByBookerIdAndStatusOrderByStartDesc(userId,
+                        BookingStatus.WAITING, pageRequest));
                 break;
             case PAST:
-                bookings = bookingRepository.findAllByBookerIdAndEndBeforeOrderByStartDesc(userId, now,pageRequest);
+                bookingsDto = withArchive(bookingViewRepository.findAllByBookerIdAndEndBeforeOrderByStartDesc(userId, now,
+                                pageRequest), pageRequest, now,
+                        () -> bookingRepository.findAllByBookerIdAndEndBeforeWithArchive(userId, now, pageRequest));
                 break;
             case FUTURE:
-                bookings = bookingRepository.findAllByBookerIdAndStartAfterOrderByStartDesc(userId, now,pageRequest);
+                bookingsDto = toDto(bookingViewRepository.findAllByBookerIdAndStartAfterOrderByStartDesc(userId, now,
+                        pageRequest));
                 break;
             case ALL:
-                bookings = bookingRepository.findAllByBookerIdOrderByStartDesc(userId,pageRequest);
+                bookingsDto = withArchive(bookingViewRepository.findAllByBookerIdOrderByStartDesc(userId, pageRequest),
+                        pageRequest, now, () -> bookingRepository.findAllByBookerIdWithArchive(userId, pageRequest));
                 break;
             default:
-                bookings = new ArrayList<>();
+                bookingsDto = new ArrayList<>();
                 break;
         }
-        List<BookingDtoResponse> bookingsDto = bookings.stream().map(BookingMapper::toBookingDtoResponse)
-                .collect(Collectors.toList());
         log.info("Возвращаем в контроллер бронирования со статусом {} пользователя с id {}  : {}",
                 bookingState, userId, bookingsDto);
         return bookingsDto;
@@ -148,39 +235,121 @@ public class BookingServiceImpl implements BookingService {
     @Override
     @Transactional(readOnly = true)
     public List<BookingDtoResponse> findAllByOwnerId(BookingState bookingState, long userId,int from,int size) {
-        userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId))
-        );
-        Collection<Booking> bookings;
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId));
+        }
+        List<BookingDtoResponse> bookingsDto;
         LocalDateTime now = LocalDateTime.now();
         PageRequest pageRequest = PageRequest.of(from / size,size);
         switch (bookingState) {
             case CURRENT:
-                bookings = bookingRepository.findAllByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(userId, now, now,pageRequest);
+                bookingsDto = toDto(bookingViewRepository.findAllByOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(
+                        userId, now, now, pageRequest));
                 break;
             case REJECTED:
-                bookings = bookingRepository.findAllByItemOwnerIdAndStatusOrderByStartDesc(userId, BookingStatus.REJECTED,pageRequest);
+                bookingsDto = toDto(bookingViewRepository.findAllByOwnerIdAndStatusOrderByStartDesc(userId,
+                        BookingStatus.REJECTED, pageRequest));
                 break;
             case WAITING:
-                bookings = bookingRepository.findAllByItemOwnerIdAndStatusOrderByStartDesc(userId, BookingStatus.WAITING,pageRequest);
+                bookingsDto = toDto(bookingViewRepository.findAllByOwnerIdAndStatusOrderByStartDesc(userId,
+                        BookingStatus.WAITING, pageRequest));
                 break;
             case PAST:
-                bookings = bookingRepository.findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(userId, now,pageRequest);
+                bookingsDto = withArchive(bookingViewRepository.findAllByOwnerIdAndEndBeforeOrderByStartDesc(userId, now,
+                                pageRequest), pageRequest, now,
+                        () -> bookingRepository.findAllByOwnerIdAndEndBeforeWithArchive(userId, now, pageRequest));
                 break;
             case FUTURE:
-                bookings = bookingRepository.findAllByItemOwnerIdAndStartAfterOrderByStartDesc(userId, now,pageRequest);
+                bookingsDto = toDto(bookingViewRepository.findAllByOwnerIdAndStartAfterOrderByStartDesc(userId, now,
+                        pageRequest));
                 break;
             case ALL:
-                bookings = bookingRepository.findAllByItemOwnerIdOrderByStartDesc(userId,pageRequest);
+                bookingsDto = withArchive(bookingViewRepository.findAllByOwnerIdOrderByStartDesc(userId, pageRequest),
+                        pageRequest, now, () -> bookingRepository.findAllByOwnerIdWithArchive(userId, pageRequest));
                 break;
             default:
-                bookings = new ArrayList<>();
+                bookingsDto = new ArrayList<>();
                 break;
         }
-        List<BookingDtoResponse> bookingsDto = bookings.stream().map(BookingMapper::toBookingDtoResponse)
-                .collect(Collectors.toList());
         log.info("Возвращаем в контроллер бронирования со статусом {} пользователя с id {}  : {}",
                 bookingState, userId, bookingsDto);
         return bookingsDto;
     }
+
+    @Override
+    public WaitlistDto joinWaitlist(BookingDtoRequest bookingDtoRequest, long userId) {
+        checkBookable(bookingDtoRequest, userId);
+        itemLocks.lock(bookingDtoRequest.getItemId());
+        if (!itemWaitlist.isOccupied(bookingDtoRequest.getItemId(), bookingDtoRequest.getStart(),
+                bookingDtoRequest.getEnd())) {
+            throw new ValidationException("Вещь свободна на эти даты, бронирование можно создать сразу");
+        }
+        WaitlistEntry entry = itemWaitlist.add(BookingMapper.toWaitlistEntry(bookingDtoRequest, userId));
+        log.info("Пользователь с id {} встал в очередь ожидания : {}", userId, entry);
+        return BookingMapper.toWaitlistDto(entry);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<WaitlistDto> findWaitlist(long userId) {
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователя с id %d не существует", userId));
+        }
+        return waitlistRepository.findAllByBookerIdOrderByCreated(userId).stream()
+                .map(BookingMapper::toWaitlistDto)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void leaveWaitlist(long entryId, long userId) {
+        WaitlistEntry entry = waitlistRepository.findById(entryId)
+                .filter(found -> found.getBookerId().equals(userId))
+                .orElseThrow(() -> new EntityNotFoundException(
+                        String.format("Запись в очереди ожидания с id %d не существует", entryId)));
+        itemWaitlist.remove(entry);
+        log.info("Пользователь с id {} покинул очередь ожидания : {}", userId, entry);
+    }
+
+    private Item checkBookable(BookingDtoRequest bookingDtoRequest, long userId) {
+        long itemId = bookingDtoRequest.getItemId();
+        Item item = itemRepository.findById(itemId)
+                .filter(found -> userExistenceIndex.exists(found.getOwner().getId()))
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Вещь с id %d не существует", itemId)));
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
+        if (!item.getAvailable()) {
+            throw new ValidationException("Бронирование недоступной вещи запрещено");
+        }
+        if (item.getOwner().getId().equals(userId)) {
+            throw new BookOwnItemsException("Бронировать собственные вещи запрещено");
+        }
+        if (!bookingDtoRequest.getEnd().isAfter(bookingDtoRequest.getStart())) {
+            throw new ValidationException("Дата начала бронирования должна быть раньше даты возврата");
+        }
+        return item;
+    }
+
+    // освободившиеся даты сразу отдаются следующим в очереди, новые бронирования ждут ответа владельца как обычные
+    private void promoteWaitlist(long itemId) {
+        for (Booking promoted : itemWaitlist.promote(itemId, LocalDateTime.now())) {
+            approvalExpiry.onCreated(promoted.getId(), promoted.getCreated());
+        }
+    }
+
+    // списки читаются из booking_view: одна строка на бронирование, без соединений с items и users
+    private static List<BookingDtoResponse> toDto(List<BookingView> bookings) {
+        return bookings.stream().map(BookingMapper::toBookingDtoResponse).collect(Collectors.toList());
+    }
+
+    // В архиве лежат только бронирования, закончившиеся раньше now - archiveHorizon. Если страница горячей
+    // таблицы полная и ее последнее бронирование начинается позже этой границы, архив на нее не влияет
+    private List<BookingDtoResponse> withArchive(List<BookingView> hot, PageRequest pageRequest, LocalDateTime now,
+                                                 Supplier<List<Booking>> withArchive) {
+        if (hot.size() == pageRequest.getPageSize()
+                && hot.get(hot.size() - 1).getStart().isAfter(now.minus(archiveHorizon))) {
+            return toDto(hot);
+        }
+        return withArchive.get().stream().map(BookingMapper::toBookingDtoResponse).collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Проверка, завершал ли пользователь бронирование вещи.
+ * Подтвержденные пары кешируются: завершенное бронирование остается завершенным. Остальные проверяются
+ * запросом по индексу (booker_id, item_id, end_date) — отрицательный ответ локальной структуры не знает
+ * о бронированиях, записанных другими экземплярами приложения.
+ */
+@Component
+public class CompletedBookingIndex {
+
+    private final BookingRepository bookingRepository;
+    private final Set<Pair> completedPairs;
+
+    public CompletedBookingIndex(BookingRepository bookingRepository,
+                                 @Value("${shareit.bookings.history-filter.cache-size:100000}") int cacheSize) {
+        this.bookingRepository = bookingRepository;
+        this.completedPairs = Collections.newSetFromMap(Collections.synchronizedMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Pair, Boolean> eldest) {
+                        return size() > cacheSize;
+                    }
+                }));
+    }
+
+    public boolean hasCompletedBooking(long bookerId, long itemId, LocalDateTime now) {
+        Pair pair = new Pair(bookerId, itemId);
+        if (completedPairs.contains(pair)) {
+            return true;
+        }
+        boolean completed = bookingRepository.existsByBookerIdAndItemIdAndEndBefore(bookerId, itemId, now)
+                || bookingRepository.countArchivedByBookerIdAndItemId(bookerId, itemId) > 0;
+        if (completed) {
+            completedPairs.add(pair);
+        }
+        return completed;
+    }
+
+    @lombok.Value
+    private static class Pair {
+        long bookerId;
+        long itemId;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.shareit.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Блокировки вещей на время проверки дат и записи бронирования. Фиксированный массив блокировок,
+ * вещь попадает в полосу по хешу id: запросы к разным вещам почти никогда не ждут друг друга,
+ * а память не растет с числом вещей. Блокировка держится до завершения транзакции, чтобы следующий
+ * запрос к вещи увидел уже закоммиченное бронирование.
+ * На Postgres после блокировки полосы берется еще pg_advisory_xact_lock(id вещи), она действует
+ * между экземплярами приложения и снимается самой БД при завершении транзакции.
+ */
+@Component
+public class ItemLocks {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean advisory;
+    private final ReentrantLock[] stripes;
+
+    public ItemLocks(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                     @Value("${shareit.bookings.lock-stripes:256}") int stripes,
+                     @Value("${shareit.bookings.advisory-locks:true}") boolean advisoryLocks)
+            throws MetaDataAccessException {
+        this.jdbcTemplate = jdbcTemplate;
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        this.advisory = advisoryLocks && "PostgreSQL".equals(product);
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Блокирует вещь до конца текущей транзакции. Вызывать до первой записи в транзакции,
+     * иначе поток может ждать полосу, удерживая блокировки строк в БД.
+     */
+    public void lock(long itemId) {
+        ReentrantLock lock = stripe(itemId);
+        lock.lock();
+        TransactionHooks.afterCompletion(lock::unlock);
+        if (advisory) {
+            // локальная очередь выстраивается на полосе, к БД за блокировкой идет только ее владелец
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, itemId);
+        }
+    }
+
+    private ReentrantLock stripe(long itemId) {
+        // последовательные id разносятся по полосам умножением на золотое сечение
+        long hash = itemId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> 32) & (stripes.length - 1)];
+    }
+}
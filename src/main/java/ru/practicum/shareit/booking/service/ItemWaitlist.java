@@ -0,0 +1,105 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.WaitlistEntry;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingViewRepository;
+import ru.practicum.shareit.booking.repository.WaitlistRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistenceIndex;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Очереди ожидания по вещам. Запрос на даты, пересекающиеся с ожидающим или подтвержденным бронированием,
+ * встает в очередь вещи; очередь хранится только в таблице waitlist, так что ее видят все экземпляры приложения.
+ * Когда бронирование отклонено или отменено, в той же транзакции под блокировкой вещи очередь читается
+ * по индексу (item_id, created, id), и первые совместимые с освободившимися датами записи превращаются
+ * в новые бронирования.
+ */
+@Slf4j
+@Component
+public class ItemWaitlist {
+
+    private static final List<BookingStatus> OCCUPYING = List.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+
+    private final WaitlistRepository waitlistRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingViewRepository bookingViewRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final UserExistenceIndex userExistenceIndex;
+
+    public ItemWaitlist(WaitlistRepository waitlistRepository, BookingRepository bookingRepository,
+                        BookingViewRepository bookingViewRepository, ItemRepository itemRepository, UserRepository userRepository,
+                        UserExistenceIndex userExistenceIndex) {
+        this.waitlistRepository = waitlistRepository;
+        this.bookingRepository = bookingRepository;
+        this.bookingViewRepository = bookingViewRepository;
+        this.itemRepository = itemRepository;
+        this.userRepository = userRepository;
+        this.userExistenceIndex = userExistenceIndex;
+    }
+
+    public boolean isOccupied(long itemId, LocalDateTime start, LocalDateTime end) {
+        return bookingRepository.existsByItemIdAndStatusInAndStartBeforeAndEndAfter(itemId, OCCUPYING, end, start);
+    }
+
+    public WaitlistEntry add(WaitlistEntry entry) {
+        return waitlistRepository.save(entry);
+    }
+
+    public void remove(WaitlistEntry entry) {
+        waitlistRepository.deleteEntry(entry.getId());
+    }
+
+    public long size(long itemId) {
+        return waitlistRepository.countByItemId(itemId);
+    }
+
+    /**
+     * Продвигает очередь вещи после освобождения дат: каждая запись по порядку, чьи даты больше ни с чем
+     * не пересекаются, становится бронированием в статусе WAITING. Вызывается в транзакции, освободившей даты,
+     * под ItemLocks вещи.
+     */
+    public List<Booking> promote(long itemId, LocalDateTime now) {
+        List<WaitlistEntry> queue = waitlistRepository.findAllByItemIdOrderByCreatedAscIdAsc(itemId);
+        if (queue.isEmpty()) {
+            return List.of();
+        }
+        Item item = itemRepository.findById(itemId).orElse(null);
+        if (item == null || !item.getAvailable()) {
+            return List.of();
+        }
+        List<Booking> promoted = new ArrayList<>();
+        for (WaitlistEntry entry : queue) {
+            boolean stale = !entry.getStart().isAfter(now) || !userExistenceIndex.exists(entry.getBookerId());
+            if (!stale && isOccupied(itemId, entry.getStart(), entry.getEnd())) {
+                continue;
+            }
+            if (waitlistRepository.deleteEntry(entry.getId()) == 0 || stale) {
+                continue;
+            }
+            Booking booking = bookingRepository.save(Booking.builder()
+                    .start(entry.getStart())
+                    .end(entry.getEnd())
+                    .status(BookingStatus.WAITING)
+                    .booker(userRepository.getReferenceById(entry.getBookerId()))
+                    .item(item)
+                    .ownerId(item.getOwner().getId())
+                    .created(now)
+                    .build());
+            bookingViewRepository.insert(booking);
+            promoted.add(booking);
+            log.info("Бронирование {} создано из очереди ожидания вещи с id {}", booking, itemId);
+        }
+        return promoted;
+    }
+}
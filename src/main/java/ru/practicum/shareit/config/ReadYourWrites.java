@@ -0,0 +1,44 @@
+package ru.practicum.shareit.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Пользователи, которые недавно писали в основную БД. Пока не истекло окно, их читающие транзакции
+ * тоже идут в основную БД, чтобы они не видели реплику, еще не догнавшую их изменения.
+ * Пользователь текущего запроса берется из заголовка X-Sharer-User-Id, запросы без него окна не имеют.
+ */
+public class ReadYourWrites {
+
+    private final ThreadLocal<Long> currentUser = new ThreadLocal<>();
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWrites(Duration window, long maxUsers) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    public void bind(Long userId) {
+        currentUser.set(userId);
+    }
+
+    public void clear() {
+        currentUser.remove();
+    }
+
+    public void onWrite() {
+        Long userId = currentUser.get();
+        if (userId != null) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    public boolean mustReadPrimary() {
+        Long userId = currentUser.get();
+        return userId != null && recentWriters.getIfPresent(userId) != null;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.shareit.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Включается, если задан shareit.datasource.replica.url. Основная БД настраивается как обычно через
+ * spring.datasource.*, реплика — через shareit.datasource.replica.* (url, username, password, hikari.*).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty("shareit.datasource.replica.url")
+public class ReplicaRoutingConfig {
+
+    private static final String REPLICA = "shareit.datasource.replica";
+
+    @Bean
+    public ReadYourWrites readYourWrites(
+            @Value("${shareit.datasource.replica.read-your-writes:PT5S}") Duration window,
+            @Value("${shareit.datasource.replica.read-your-writes-users:100000}") long maxUsers) {
+        return new ReadYourWrites(window, maxUsers);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReadYourWrites readYourWrites) {
+        return new ReadYourWritesFilter(readYourWrites);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties primaryProperties,
+                                                             ReadYourWrites readYourWrites, Environment environment) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(primaryProperties, binder, "spring.datasource.hikari", "primary");
+        DataSourceProperties replicaProperties = binder.bind(REPLICA, DataSourceProperties.class).get();
+        HikariDataSource replica = pool(replicaProperties, binder, REPLICA + ".hikari", "replica");
+        log.info("Читающие транзакции направляются в реплику {}", replica.getJdbcUrl());
+        return new ReplicaRoutingDataSource(primary, replica, readYourWrites);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Binder binder, String prefix, String name) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(name);
+        binder.bind(prefix, Bindable.ofInstance(dataSource));
+        return dataSource;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.shareit.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Направляет транзакции readOnly = true в реплику, все остальное — в основную БД.
+ * Признак readOnly выставляется уже после начала транзакции, поэтому источник оборачивается
+ * в LazyConnectionDataSourceProxy и соединение выбирается при первом запросе.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReadYourWrites readYourWrites;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReadYourWrites readYourWrites) {
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWrites = readYourWrites;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // любая пишущая транзакция открывает окно, даже если в итоге она только читала
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionHooks.afterCommit(readYourWrites::onWrite);
+            }
+            return Target.PRIMARY;
+        }
+        return readYourWrites.mustReadPrimary() ? Target.PRIMARY : Target.REPLICA;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            if (dataSource instanceof Closeable) {
+                ((Closeable) dataSource).close();
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.group.Create;
@@ -25,10 +27,13 @@ public class ItemController {
     public static final String USER_ID = "X-Sharer-User-Id";
 
     private final ItemService itemService;
+    private final boolean asyncComments;
 
     @Autowired
-    public ItemController(ItemService itemService) {
+    public ItemController(ItemService itemService,
+                          @Value("${shareit.comments.async.enabled:false}") boolean asyncComments) {
         this.itemService = itemService;
+        this.asyncComments = asyncComments;
     }
 
     @PostMapping
@@ -41,13 +46,16 @@ public class ItemController {
     }
 
     @PostMapping("{itemId}/comment")
-    public CommentDtoResponse addComment(
+    public ResponseEntity<CommentDtoResponse> addComment(
             @RequestHeader(USER_ID) long userId,
             @PathVariable long itemId,
             @Validated(Create.class) @RequestBody CommentDtoRequest commentDtoRequest
     ) {
         log.info("Запрос на добавление отзыва {} для вещи с id {}  пользователем с id {}", commentDtoRequest, itemId, userId);
-        return itemService.addComment(userId, itemId, commentDtoRequest);
+        if (asyncComments) {
+            return ResponseEntity.accepted().body(itemService.addCommentAsync(userId, itemId, commentDtoRequest));
+        }
+        return ResponseEntity.ok(itemService.addComment(userId, itemId, commentDtoRequest));
     }
 
     @PatchMapping("{itemId}")
@@ -76,6 +84,21 @@ public class ItemController {
         return itemService.getAllUserItems(userId, from, size);
     }
 
+    @GetMapping("popular")
+    public List<ItemDtoRequest> getPopular(@RequestParam(defaultValue = "10") @Min(1) int size) {
+        log.info("Запрос на получение {} самых популярных вещей", size);
+        return itemService.getPopular(size);
+    }
+
+    @GetMapping("{itemId}/related")
+    public List<ItemDtoRequest> getRelated(
+            @PathVariable long itemId,
+            @RequestParam(defaultValue = "10") @Min(1) int size
+    ) {
+        log.info("Запрос на получение {} вещей, которые бронируют вместе с вещью с id {}", size, itemId);
+        return itemService.getRelated(itemId, size);
+    }
+
     @GetMapping("search")
     public List<ItemDtoResponse> search(
             @RequestParam(required = false) String text,
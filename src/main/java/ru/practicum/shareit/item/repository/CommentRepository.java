@@ -1,11 +1,15 @@
 package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Comment;
 
 import java.util.Collection;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
+    // @Where пользователя на явный join не действует: до очистки комментарии удаленных авторов отбрасываются здесь,
+    // иначе ленивый автор не загрузится
+    @Query("SELECT c FROM Comment c JOIN FETCH c.author a WHERE c.item.id = ?1 AND a.deleted = false")
     Collection<Comment> findAllByItemId(long itemId);
 }
@@ -3,16 +3,19 @@ package ru.practicum.shareit.item.repository;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Item> findAllByOwnerIdOrderById(long ownerId, PageRequest page);
 
     @Query("SELECT i from Item as i " +
-            "WHERE i.available = TRUE " +
+            "WHERE i.available = TRUE AND i.owner.deleted = FALSE " +
             "AND (LOWER(i.name) LIKE LOWER(CONCAT( '%',?1,'%')) " +
             "OR LOWER(i.description) LIKE LOWER(CONCAT('%',?1,'%'))) ")
     List<Item> search(String text, PageRequest pageRequest);
@@ -0,0 +1,151 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Фоновая запись отзывов: отзывы, прошедшие проверку прав, складываются в ограниченную очередь,
+ * а отдельный поток сохраняет их пачками в одной транзакции.
+ */
+@Slf4j
+@Component
+public class CommentWriter {
+
+    private final CommentRepository commentRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final BlockingQueue<PendingComment> queue;
+    private final AtomicLong provisionalIds = new AtomicLong();
+    private volatile boolean running;
+    private Thread worker;
+
+    public CommentWriter(CommentRepository commentRepository, ItemRepository itemRepository,
+                         UserRepository userRepository, PlatformTransactionManager transactionManager,
+                         @Value("${shareit.comments.async.enabled:false}") boolean enabled,
+                         @Value("${shareit.comments.async.queue-capacity:10000}") int queueCapacity,
+                         @Value("${shareit.comments.async.batch-size:100}") int batchSize,
+                         @Value("${shareit.comments.async.flush-interval:200ms}") Duration flushInterval) {
+        this.commentRepository = commentRepository;
+        this.itemRepository = itemRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "comment-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+    }
+
+    public long nextProvisionalId() {
+        return provisionalIds.decrementAndGet();
+    }
+
+    public boolean enqueue(PendingComment comment) {
+        return queue.offer(comment);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                PendingComment first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingComment> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    void flush() {
+        List<PendingComment> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingComment> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> commentRepository.saveAll(
+                    batch.stream().map(this::toComment).collect(Collectors.toList())));
+            log.info("Сохранили в БД пачку отзывов : {}", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сохранить пачку отзывов, сохраняем по одному : {}", e.getMessage());
+            for (PendingComment pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> commentRepository.save(toComment(pending)));
+                } catch (RuntimeException ex) {
+                    log.error("Отзыв {} потерян : {}", pending, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private Comment toComment(PendingComment pending) {
+        return Comment.builder()
+                .text(pending.getText())
+                .item(itemRepository.getReferenceById(pending.getItemId()))
+                .author(userRepository.getReferenceById(pending.getAuthorId()))
+                .created(pending.getCreated())
+                .build();
+    }
+
+    @lombok.Value
+    public static class PendingComment {
+        long provisionalId;
+        long itemId;
+        long authorId;
+        String text;
+        LocalDateTime created;
+    }
+}
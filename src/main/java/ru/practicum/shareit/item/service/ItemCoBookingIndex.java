@@ -0,0 +1,177 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookerItemView;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс совместных бронирований: для каждой вещи хранит top-N вещей,
+ * которые бронировали те же пользователи. Строится при старте по подтвержденным
+ * бронированиям и дополняется при каждом новом подтверждении.
+ * Полная матрица совпадений не хранится: у пользователя помнятся последние history вещей,
+ * у вещи — candidates счетчиков Space-Saving в примитивных массивах, поэтому память и стоимость
+ * подтверждения ограничены настройками, а не числом вещей и бронирований.
+ */
+@Slf4j
+@Component
+public class ItemCoBookingIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final BookingRepository bookingRepository;
+    private final int topN;
+    private final int candidates;
+    private final int history;
+    private final Map<Long, History> itemsByBooker = new HashMap<>();
+    private final Map<Long, Candidates> counts = new HashMap<>();
+    private final Map<Long, long[]> related = new ConcurrentHashMap<>();
+
+    public ItemCoBookingIndex(BookingRepository bookingRepository,
+                              @Value("${shareit.items.related.top-n:20}") int topN,
+                              @Value("${shareit.items.related.candidates:100}") int candidates,
+                              @Value("${shareit.items.related.history:100}") int history) {
+        this.bookingRepository = bookingRepository;
+        this.topN = topN;
+        this.candidates = Math.max(candidates, topN);
+        this.history = history;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        itemsByBooker.clear();
+        counts.clear();
+        related.clear();
+        for (BookerItemView pair : bookingRepository.findDistinctBookerItemPairs(BookingStatus.APPROVED.name())) {
+            add(pair.getBookerId(), pair.getItemId());
+        }
+        log.info("Индекс совместных бронирований построен: {} пользователей, {} вещей",
+                itemsByBooker.size(), counts.size());
+    }
+
+    public void onApproved(long bookerId, long itemId) {
+        TransactionHooks.afterCommit(() -> add(bookerId, itemId));
+    }
+
+    public long[] related(long itemId) {
+        long[] top = related.get(itemId);
+        return top != null ? top : build(itemId);
+    }
+
+    synchronized void add(long bookerId, long itemId) {
+        History booked = itemsByBooker.computeIfAbsent(bookerId, id -> new History(history));
+        if (booked.contains(itemId)) {
+            return;
+        }
+        for (int i = 0; i < booked.size; i++) {
+            long other = booked.items[i];
+            increment(itemId, other);
+            increment(other, itemId);
+        }
+        booked.add(itemId);
+    }
+
+    private void increment(long itemId, long otherId) {
+        counts.computeIfAbsent(itemId, id -> new Candidates(candidates)).offer(otherId);
+        related.remove(itemId);
+    }
+
+    private synchronized long[] build(long itemId) {
+        Candidates itemCounts = counts.get(itemId);
+        long[] top = itemCounts == null ? EMPTY : itemCounts.top(topN);
+        related.put(itemId, top);
+        return top;
+    }
+
+    // последние вещи пользователя; самая старая вытесняется
+    private static class History {
+        private final long[] items;
+        private int size;
+
+        History(int capacity) {
+            items = new long[capacity];
+        }
+
+        boolean contains(long itemId) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == itemId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(long itemId) {
+            if (items.length == 0) {
+                return;
+            }
+            if (size == items.length) {
+                System.arraycopy(items, 1, items, 0, size - 1);
+                size--;
+            }
+            items[size++] = itemId;
+        }
+    }
+
+    /**
+     * Space-Saving (Metwally et al.) с линейным поиском: счетчиков немного, а вставка
+     * нового кандидата вместо минимального держит их число постоянным.
+     */
+    private static class Candidates {
+        private final long[] items;
+        private final int[] counts;
+        private int size;
+
+        Candidates(int capacity) {
+            items = new long[capacity];
+            counts = new int[capacity];
+        }
+
+        void offer(long itemId) {
+            int min = 0;
+            for (int i = 0; i < size; i++) {
+                if (items[i] == itemId) {
+                    counts[i]++;
+                    return;
+                }
+                if (counts[i] < counts[min]) {
+                    min = i;
+                }
+            }
+            if (size < items.length) {
+                items[size] = itemId;
+                counts[size++] = 1;
+                return;
+            }
+            items[min] = itemId;
+            counts[min]++;
+        }
+
+        // top-N выбором: limit и число счетчиков малы, сортировка с упаковкой в объекты не нужна
+        long[] top(int limit) {
+            boolean[] taken = new boolean[size];
+            long[] top = new long[Math.min(limit, size)];
+            for (int k = 0; k < top.length; k++) {
+                int best = -1;
+                for (int i = 0; i < size; i++) {
+                    if (!taken[i] && (best < 0 || counts[i] > counts[best]
+                            || counts[i] == counts[best] && items[i] < items[best])) {
+                        best = i;
+                    }
+                }
+                taken[best] = true;
+                top[k] = items[best];
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.ItemCreatedView;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Приблизительный топ самых бронируемых вещей за скользящее окно.
+ * Окно разбито на корзины, в каждой корзине Space-Saving с фиксированным числом счетчиков,
+ * поэтому память ограничена buckets * capacity независимо от количества бронирований.
+ * Бронирование учитывается один раз, при подтверждении; при старте окно заполняется подтвержденными
+ * бронированиями из БД, временем события для них служит дата создания.
+ * Топ пересобирается по таймеру refresh, а не на чтении: GET /items/popular только копирует готовый массив.
+ */
+@Slf4j
+@Component
+public class ItemPopularityTracker {
+
+    private final BookingRepository bookingRepository;
+    private final long bucketMillis;
+    private final int maxSize;
+    private final SpaceSaving[] buckets;
+    private volatile long[] snapshot = new long[0];
+    private long snapshotEpoch = -1;
+    private boolean dirty;
+
+    public ItemPopularityTracker(BookingRepository bookingRepository,
+                                 @Value("${shareit.items.popular.bucket-duration:1d}") Duration bucketDuration,
+                                 @Value("${shareit.items.popular.buckets:7}") int bucketCount,
+                                 @Value("${shareit.items.popular.capacity:1000}") int capacity,
+                                 @Value("${shareit.items.popular.max-size:100}") int maxSize) {
+        this.bookingRepository = bookingRepository;
+        this.bucketMillis = bucketDuration.toMillis();
+        this.maxSize = maxSize;
+        this.buckets = new SpaceSaving[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new SpaceSaving(capacity);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // только корзины текущего окна: у каждой своя ячейка кольца, порядок записей не важен
+        long since = (System.currentTimeMillis() / bucketMillis - buckets.length + 1) * bucketMillis;
+        List<ItemCreatedView> approved = bookingRepository.findItemCreatedByStatusSince(BookingStatus.APPROVED,
+                new Timestamp(since).toLocalDateTime());
+        for (ItemCreatedView booking : approved) {
+            record(booking.getItemId(), Timestamp.valueOf(booking.getCreated()).getTime());
+        }
+        refresh(System.currentTimeMillis());
+        log.info("Счетчики популярных вещей заполнены : {} подтвержденных бронирований", approved.size());
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.items.popular.refresh:PT1S}")
+    public void refresh() {
+        refresh(System.currentTimeMillis());
+    }
+
+    public void onApproved(long itemId) {
+        TransactionHooks.afterCommit(() -> record(itemId, System.currentTimeMillis()));
+    }
+
+    public List<Long> top(int size) {
+        long[] ids = snapshot;
+        int limit = Math.min(size, ids.length);
+        List<Long> result = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    synchronized void record(long itemId, long timeMillis) {
+        long epoch = timeMillis / bucketMillis;
+        SpaceSaving bucket = buckets[(int) (epoch % buckets.length)];
+        if (bucket.epoch != epoch) {
+            bucket.reset(epoch);
+        }
+        bucket.offer(itemId);
+        dirty = true;
+    }
+
+    synchronized void refresh(long timeMillis) {
+        long epoch = timeMillis / bucketMillis;
+        if (!dirty && snapshotEpoch == epoch) {
+            return;
+        }
+        Map<Long, Long> counts = new HashMap<>();
+        for (SpaceSaving bucket : buckets) {
+            if (bucket.epoch > epoch - buckets.length && bucket.epoch <= epoch) {
+                bucket.collect(counts);
+            }
+        }
+        long[] ids = counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxSize)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+        snapshot = ids;
+        snapshotEpoch = epoch;
+        dirty = false;
+    }
+
+    /**
+     * Space-Saving (Metwally et al.) на индексированной min-куче из примитивных массивов.
+     */
+    private static class SpaceSaving {
+        private final long[] items;
+        private final long[] counts;
+        private final Map<Long, Integer> positions;
+        private int size;
+        private long epoch = -1;
+
+        SpaceSaving(int capacity) {
+            items = new long[capacity];
+            counts = new long[capacity];
+            positions = new HashMap<>(capacity * 2);
+        }
+
+        void reset(long epoch) {
+            this.epoch = epoch;
+            size = 0;
+            positions.clear();
+            Arrays.fill(counts, 0);
+        }
+
+        void offer(long itemId) {
+            Integer position = positions.get(itemId);
+            if (position != null) {
+                counts[position]++;
+                siftDown(position);
+                return;
+            }
+            if (size < items.length) {
+                items[size] = itemId;
+                counts[size] = 1;
+                positions.put(itemId, size);
+                siftUp(size++);
+                return;
+            }
+            positions.remove(items[0]);
+            items[0] = itemId;
+            counts[0]++;
+            positions.put(itemId, 0);
+            siftDown(0);
+        }
+
+        void collect(Map<Long, Long> target) {
+            for (int i = 0; i < size; i++) {
+                target.merge(items[i], counts[i], Long::sum);
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (counts[parent] <= counts[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int right = left + 1;
+                int smallest = i;
+                if (left < size && counts[left] < counts[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && counts[right] < counts[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long item = items[i];
+            long count = counts[i];
+            items[i] = items[j];
+            counts[i] = counts[j];
+            items[j] = item;
+            counts[j] = count;
+            positions.put(items[i], i);
+            positions.put(items[j], j);
+        }
+    }
+}
@@ -21,4 +21,10 @@ public interface ItemService {
     List<ItemDtoResponse> search(String text, int from, int size);
 
     CommentDtoResponse addComment(long userId, long itemId, CommentDtoRequest commentDtoRequest);
+
+    CommentDtoResponse addCommentAsync(long userId, long itemId, CommentDtoRequest commentDtoRequest);
+
+    List<ItemDtoRequest> getPopular(int size);
+
+    List<ItemDtoRequest> getRelated(long itemId, int size);
 }
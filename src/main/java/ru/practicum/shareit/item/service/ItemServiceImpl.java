@@ -8,6 +8,8 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingViewRepository;
+import ru.practicum.shareit.booking.service.CompletedBookingIndex;
 import ru.practicum.shareit.exception.EntityNotFoundException;
 import ru.practicum.shareit.exception.NotOwnerException;
 import ru.practicum.shareit.exception.ValidationException;
@@ -22,9 +24,14 @@ import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.RequestSuggestion;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.request.service.ItemRequestFeedCache;
+import ru.practicum.shareit.request.service.OpenRequestIndex;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistenceIndex;
 
 
 import java.time.LocalDateTime;
@@ -38,26 +45,52 @@ public class ItemServiceImpl implements ItemService {
 
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final UserExistenceIndex userExistenceIndex;
     private final BookingRepository bookingRepository;
+    private final BookingViewRepository bookingViewRepository;
     private final CommentRepository commentRepository;
 
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemPopularityTracker popularityTracker;
+    private final ItemCoBookingIndex coBookingIndex;
+    private final CommentWriter commentWriter;
+    private final CompletedBookingIndex completedBookingIndex;
+    private final OpenRequestIndex openRequestIndex;
+    private final ItemRequestFeedCache itemRequestFeedCache;
+    private final RequestSuggestionRepository requestSuggestionRepository;
 
     @Autowired
     public ItemServiceImpl(ItemRepository itemRepository, UserRepository userRepository,
-                           BookingRepository bookingRepository, CommentRepository commentRepository,
-                           ItemRequestRepository itemRequestRepository) {
+                           UserExistenceIndex userExistenceIndex,
+                           BookingRepository bookingRepository, BookingViewRepository bookingViewRepository,
+                           CommentRepository commentRepository,
+                           ItemRequestRepository itemRequestRepository, ItemPopularityTracker popularityTracker,
+                           ItemCoBookingIndex coBookingIndex, CommentWriter commentWriter,
+                           CompletedBookingIndex completedBookingIndex, OpenRequestIndex openRequestIndex,
+                           RequestSuggestionRepository requestSuggestionRepository,
+                           ItemRequestFeedCache itemRequestFeedCache) {
         this.itemRepository = itemRepository;
         this.userRepository = userRepository;
+        this.userExistenceIndex = userExistenceIndex;
         this.bookingRepository = bookingRepository;
+        this.bookingViewRepository = bookingViewRepository;
         this.commentRepository = commentRepository;
         this.itemRequestRepository = itemRequestRepository;
+        this.popularityTracker = popularityTracker;
+        this.coBookingIndex = coBookingIndex;
+        this.commentWriter = commentWriter;
+        this.completedBookingIndex = completedBookingIndex;
+        this.openRequestIndex = openRequestIndex;
+        this.requestSuggestionRepository = requestSuggestionRepository;
+        this.itemRequestFeedCache = itemRequestFeedCache;
     }
 
     @Override
     public ItemDtoResponse create(ItemDtoRequest itemDto, long userId) {
-        User user = userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId)));
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
+        User user = userRepository.getReferenceById(userId);
         Long requestId = itemDto.getRequestId();
         ItemRequest itemRequest = null;
         if (requestId != null) {
@@ -66,6 +99,12 @@ public class ItemServiceImpl implements ItemService {
         }
         Item item = itemRepository.save(ItemMapper.toItem(itemDto, user, itemRequest));
         log.info("Сохраняем в БД вещь : {}", item);
+        if (itemRequest != null) {
+            openRequestIndex.close(itemRequest.getId());
+            itemRequestFeedCache.invalidate();
+        } else {
+            suggestToOpenRequests(item);
+        }
         ItemDtoResponse responseDto = ItemMapper.toItemDtoResponse(item, new ArrayList<>());
         log.info("Передаем в контроллер созданную вещь : {}", responseDto);
         return responseDto;
@@ -74,8 +113,9 @@ public class ItemServiceImpl implements ItemService {
     @Override
     @Transactional(readOnly = true)
     public List<ItemDtoResponse> getAllUserItems(long userId, int from, int size) {
-        userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId)));
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
         PageRequest pageRequest = PageRequest.of(from / size, size);
         List<Item> items = itemRepository.findAllByOwnerIdOrderById(userId, pageRequest);
         Map<Item, List<Booking>> bookings = getBookings(items);
@@ -94,9 +134,9 @@ public class ItemServiceImpl implements ItemService {
     @Override
     @Transactional(readOnly = true)
     public ItemDtoResponse getItem(long itemId, long userId) {
-        Item item = itemRepository.findById(itemId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Вещь с id %d не существует", itemId))
-        );
+        Item item = itemRepository.findById(itemId)
+                .filter(this::isOwnerActive)
+                .orElseThrow(() -> new EntityNotFoundException(String.format("Вещь с id %d не существует", itemId)));
         User user = item.getOwner();
         List<CommentDtoResponse> comments = getComments(itemId);
         ItemDtoResponse responseDto;
@@ -134,8 +174,9 @@ public class ItemServiceImpl implements ItemService {
         String name = itemDtoRequest.getName();
         String description = itemDtoRequest.getDescription();
         Boolean available = itemDtoRequest.getAvailable();
-        if (name != null && !name.isBlank()) {
+        if (name != null && !name.isBlank() && !name.equals(item.getName())) {
             item.setName(name);
+            bookingViewRepository.renameItem(itemId, name);
         }
         if (description != null && !description.isBlank()) {
             item.setDescription(description);
@@ -146,6 +187,9 @@ public class ItemServiceImpl implements ItemService {
         List<CommentDtoResponse> comments = getComments(itemId);
         Item updateItem = itemRepository.save(item);
         log.info("Обновляем в БД вещь : {}", updateItem);
+        if (updateItem.getRequest() != null) {
+            itemRequestFeedCache.invalidate();
+        }
         ItemDtoResponse responseDto = ItemMapper.toItemDtoResponse(updateItem, comments);
         log.info("Передаем в контроллер обновленную вещь с id {} : {}", itemId, responseDto);
         return responseDto;
@@ -171,13 +215,7 @@ public class ItemServiceImpl implements ItemService {
         );
         User author = userRepository.findById(userId).orElseThrow(
                 () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId)));
-        Collection<Booking> bookings = bookingRepository.findAllByBookerIdAndEndBeforeOrderByStartDesc(
-                author.getId(), LocalDateTime.now()
-        );
-        boolean checkBooking = bookings.stream().anyMatch(booking -> booking.getItem().getId() == itemId);
-        if (!checkBooking) {
-            throw new ValidationException("Нет прав на добавление комментария");
-        }
+        checkCommentRights(userId, itemId);
         Comment comment = commentRepository.save(CommentMapper.toComment(commentDtoRequest, author, item, LocalDateTime.now()));
         log.info("Сохраняем в БД отзыв : {}", comment);
         CommentDtoResponse commentDtoResponse = CommentMapper.toCommentDtoResponse(comment);
@@ -185,6 +223,92 @@ public class ItemServiceImpl implements ItemService {
         return commentDtoResponse;
     }
 
+    // не readOnly: при переполненной очереди отзыв сохраняется в этой же транзакции на основной базе
+    @Override
+    public CommentDtoResponse addCommentAsync(long userId, long itemId, CommentDtoRequest commentDtoRequest) {
+        if (!itemRepository.existsById(itemId)) {
+            throw new EntityNotFoundException(String.format("Вещь с id %d не существует", itemId));
+        }
+        User author = userRepository.findById(userId).orElseThrow(
+                () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId)));
+        checkCommentRights(userId, itemId);
+        CommentWriter.PendingComment pending = new CommentWriter.PendingComment(commentWriter.nextProvisionalId(),
+                itemId, userId, commentDtoRequest.getText(), LocalDateTime.now());
+        if (!commentWriter.enqueue(pending)) {
+            log.warn("Очередь отзывов переполнена, сохраняем отзыв синхронно");
+            Comment comment = commentRepository.save(CommentMapper.toComment(commentDtoRequest, author,
+                    itemRepository.getReferenceById(itemId), pending.getCreated()));
+            return CommentMapper.toCommentDtoResponse(comment);
+        }
+        CommentDtoResponse commentDtoResponse = CommentDtoResponse.builder()
+                .id(pending.getProvisionalId())
+                .text(pending.getText())
+                .authorName(author.getName())
+                .created(pending.getCreated())
+                .build();
+        log.info("Передаем в контроллер принятый в очередь отзыв : {} ", commentDtoResponse);
+        return commentDtoResponse;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemDtoRequest> getPopular(int size) {
+        List<ItemDtoRequest> popular = getItemsInOrder(popularityTracker.top(size));
+        log.info("Передаем в контроллер популярные вещи : {} ", popular);
+        return popular;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemDtoRequest> getRelated(long itemId, int size) {
+        if (!itemRepository.existsById(itemId)) {
+            throw new EntityNotFoundException(String.format("Вещь с id %d не существует", itemId));
+        }
+        long[] related = coBookingIndex.related(itemId);
+        List<Long> ids = Arrays.stream(related).limit(size).boxed().collect(Collectors.toList());
+        List<ItemDtoRequest> items = getItemsInOrder(ids);
+        log.info("Передаем в контроллер вещи, которые бронируют вместе с вещью с id {} : {} ", itemId, items);
+        return items;
+    }
+
+    private void suggestToOpenRequests(Item item) {
+        openRequestIndex.poll();
+        List<Long> requestIds = openRequestIndex.match(item.getName() + " " + item.getDescription(),
+                item.getOwner().getId());
+        if (requestIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<RequestSuggestion> suggestions = requestIds.stream()
+                .map(requestId -> RequestSuggestion.builder()
+                        .request(itemRequestRepository.getReferenceById(requestId))
+                        .item(item)
+                        .created(now)
+                        .build())
+                .collect(Collectors.toList());
+        requestSuggestionRepository.saveAll(suggestions);
+        log.info("Предлагаем вещь с id {} для запросов {}", item.getId(), requestIds);
+    }
+
+    private void checkCommentRights(long userId, long itemId) {
+        if (!completedBookingIndex.hasCompletedBooking(userId, itemId, LocalDateTime.now())) {
+            throw new ValidationException("Нет прав на добавление комментария");
+        }
+    }
+
+    private List<ItemDtoRequest> getItemsInOrder(List<Long> ids) {
+        Map<Long, Item> items = itemRepository.findAllById(ids).stream()
+                .filter(this::isOwnerActive)
+                .collect(Collectors.toMap(Item::getId, item -> item));
+        return ids.stream().filter(items::containsKey)
+                .map(id -> ItemMapper.itemToDto(items.get(id))).collect(Collectors.toList());
+    }
+
+    // вещи удаленных пользователей скрыты до того, как их уберет UserPurger
+    private boolean isOwnerActive(Item item) {
+        return userExistenceIndex.exists(item.getOwner().getId());
+    }
+
     private Map<Item, List<Booking>> getBookings(List<Item> items) {
         return bookingRepository.findAllByItemInAndStatusOrderByStartAsc(items, BookingStatus.APPROVED)
                 .stream().collect(Collectors.groupingBy(Booking::getItem, Collectors.toList()));
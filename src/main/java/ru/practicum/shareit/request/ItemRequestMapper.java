@@ -8,35 +8,31 @@ import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ItemRequestMapper {
 
     public static ItemRequest toItemRequest(RequestItemRequestDto itemRequestDto, User requester) {
         return ItemRequest.builder()
                 .description(itemRequestDto.getDescription())
-                .created(LocalDateTime.now())
+                .created(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
                 .requester(requester)
                 .build();
     }
 
     public static ResponseItemRequestDto itemRequestToResponseItemRequestDto(ItemRequest itemRequest, List<Item> items) {
+        return itemRequestToResponseItemRequestDto(itemRequest, items, List.of());
+    }
+
+    public static ResponseItemRequestDto itemRequestToResponseItemRequestDto(ItemRequest itemRequest, List<Item> items,
+                                                                             List<Item> suggestions) {
         return ResponseItemRequestDto.builder()
                 .id(itemRequest.getId())
                 .description(itemRequest.getDescription())
                 .created(itemRequest.getCreated())
                 .items(ItemMapper.itemsToDto(items))
+                .suggestions(ItemMapper.itemsToDto(suggestions))
                 .build();
     }
-
-    public static List<ResponseItemRequestDto> itemRequestsToResponseItemRequestDto(
-            List<ItemRequest> itemRequests, Map<Long, List<Item>> items) {
-        return itemRequests
-                .stream()
-                .map(ir -> itemRequestToResponseItemRequestDto(ir,
-                        items.getOrDefault(ir.getId(), List.of())))
-                .collect(Collectors.toList());
-    }
 }
@@ -2,14 +2,18 @@ package ru.practicum.shareit.request.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.request.dto.RequestItemRequestDto;
 import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -46,12 +50,26 @@ public class ItemRequestController {
     public List<ResponseItemRequestDto> getAll(
             @RequestHeader(USER_ID) @Min(1) long userId,
             @RequestParam(name = "from", defaultValue = "0") @Min(0) int from,
-            @RequestParam(name = "size", defaultValue = "10") @Min(1) int size) {
+            @RequestParam(name = "size", defaultValue = "10") @Min(1) int size,
+            @RequestParam(name = "afterCreated", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreated,
+            @RequestParam(name = "afterId", required = false) Long afterId) {
+        if (afterCreated != null && afterId != null) {
+            log.info("Запрос на получение всех запросов вещей пользователем с id {}, после ({}, {}), количество {}",
+                    userId, afterCreated, afterId, size);
+            return itemRequestService.findAllBefore(userId, afterCreated, afterId, size);
+        }
         log.info("Запрос на получение всех запросов вещей пользователем с id {},c {} элемента, количество {}",
                 userId, from, size);
         return itemRequestService.findAll(userId, from, size);
     }
 
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(USER_ID) @Min(1) long userId) {
+        log.info("Запрос на подписку на новые запросы вещей пользователем с id {}", userId);
+        return itemRequestService.subscribe(userId);
+    }
+
     @GetMapping("/{requestId}")
     public ResponseItemRequestDto getRequest(
             @RequestHeader(USER_ID) @Min(1) long userId,
@@ -0,0 +1,9 @@
+package ru.practicum.shareit.request.dto;
+
+import lombok.Value;
+
+@Value
+public class ItemRequestFeedEntry {
+    long requesterId;
+    ResponseItemRequestDto request;
+}
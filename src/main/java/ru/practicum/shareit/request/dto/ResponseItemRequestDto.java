@@ -15,4 +15,5 @@ public class ResponseItemRequestDto {
     private String description;
     private LocalDateTime created;
     private List<ItemDtoRequest> items;
+    private List<ItemDtoRequest> suggestions;
 }
@@ -0,0 +1,181 @@
+package ru.practicum.shareit.request.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.request.dto.ItemRequestFeedEntry;
+import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
+import ru.practicum.shareit.util.PendingWrites;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Лента запросов вместе с откликнувшимися вещами за один запрос к БД, без загрузки сущностей Item.
+ * Свои запросы пользователя читаются тем же запросом вместе с подходящими вещами из request_suggestions.
+ * На PostgreSQL вещи собираются в json_agg, на остальных БД запросы соединяются с вещами и сворачиваются в Java.
+ * Запросы и вещи удаленных пользователей, еще не убранные UserPurger, отфильтровываются.
+ */
+@Repository
+public class ItemRequestFeedRepository {
+
+    private static final String ORDER = " ORDER BY r.created DESC, r.id DESC";
+    private static final String COLUMNS = "SELECT r.id, r.description, r.created, r.requester_id FROM requests r " +
+            "JOIN users u ON u.id = r.requester_id AND u.deleted = FALSE ";
+    private static final String BY_REQUESTER = COLUMNS + "WHERE r.requester_id = :userId" + ORDER;
+    private static final String BY_OTHERS = COLUMNS + "WHERE r.requester_id <> :userId" + ORDER +
+            " OFFSET :offset ROWS FETCH NEXT :limit ROWS ONLY";
+    private static final String BY_OTHERS_BEFORE = COLUMNS + "WHERE r.requester_id <> :userId " +
+            "AND r.created <= :created AND (r.created < :created OR r.id < :id)" + ORDER +
+            " FETCH FIRST :limit ROWS ONLY";
+    private static final String NEWEST = COLUMNS + ORDER + " FETCH FIRST :limit ROWS ONLY";
+    private static final String ACTIVE_OWNER = "EXISTS (SELECT 1 FROM users o WHERE o.id = i.owner_id AND o.deleted = FALSE)";
+    private static final String ITEM_JSON = "json_agg(json_build_object('id', i.id, 'name', i.name, " +
+            "'description', i.description, 'available', i.available, 'requestId', i.request_id)";
+    private static final String ITEM_COLUMNS = "i.id AS item_id, i.name AS item_name, " +
+            "i.description AS item_description, i.available AS item_available, i.request_id AS item_request_id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PendingWrites pendingWrites;
+    private final boolean jsonAggregation;
+
+    public ItemRequestFeedRepository(NamedParameterJdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                     PendingWrites pendingWrites, DataSource dataSource)
+            throws MetaDataAccessException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.pendingWrites = pendingWrites;
+        String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        this.jsonAggregation = "PostgreSQL".equals(product);
+    }
+
+    public List<ResponseItemRequestDto> findAllByRequesterId(long userId) {
+        return requests(query(BY_REQUESTER, new MapSqlParameterSource("userId", userId), true));
+    }
+
+    public List<ResponseItemRequestDto> findAllByRequesterIdIsNot(long userId, int offset, int limit) {
+        return requests(query(BY_OTHERS, new MapSqlParameterSource("userId", userId)
+                .addValue("offset", offset)
+                .addValue("limit", limit), false));
+    }
+
+    public List<ResponseItemRequestDto> findAllByRequesterIdIsNotBefore(long userId, LocalDateTime created, long id,
+                                                                        int limit) {
+        return requests(query(BY_OTHERS_BEFORE, new MapSqlParameterSource("userId", userId)
+                .addValue("created", created)
+                .addValue("id", id)
+                .addValue("limit", limit), false));
+    }
+
+    public List<ItemRequestFeedEntry> findNewest(int limit) {
+        return query(NEWEST, new MapSqlParameterSource("limit", limit), false);
+    }
+
+    private List<ResponseItemRequestDto> requests(List<ItemRequestFeedEntry> entries) {
+        return entries.stream().map(ItemRequestFeedEntry::getRequest).collect(Collectors.toList());
+    }
+
+    private List<ItemRequestFeedEntry> query(String requests, MapSqlParameterSource params, boolean suggestions) {
+        pendingWrites.flush();
+        if (jsonAggregation) {
+            String suggested = suggestions ? ", (SELECT " + ITEM_JSON + " ORDER BY s.id) FROM request_suggestions s " +
+                    "JOIN items i ON i.id = s.item_id WHERE s.request_id = r.id AND " + ACTIVE_OWNER + ") AS suggestions"
+                    : "";
+            return jdbcTemplate.query("SELECT r.id, r.description, r.created, r.requester_id, " +
+                    "(SELECT " + ITEM_JSON + " ORDER BY i.id) FROM items i WHERE i.request_id = r.id AND " +
+                    ACTIVE_OWNER + ") AS items" + suggested + " " +
+                    "FROM (" + requests + ") r" + ORDER, params, (rs, rowNum) -> {
+                        ItemRequestFeedEntry entry = toEntry(rs);
+                        long id = entry.getRequest().getId();
+                        entry.getRequest().setItems(parseItems(rs.getString("items"), id));
+                        if (suggestions) {
+                            entry.getRequest().setSuggestions(parseItems(rs.getString("suggestions"), id));
+                        }
+                        return entry;
+                    });
+        }
+        // вещи запроса и предложенные вещи идут разными строками, kind различает их при свертке
+        String items = "SELECT r.id, r.description, r.created, r.requester_id, 0 AS kind, 0 AS position, " +
+                ITEM_COLUMNS + " FROM (" + requests + ") r LEFT JOIN items i ON i.request_id = r.id AND " + ACTIVE_OWNER;
+        String suggested = " UNION ALL SELECT r.id, r.description, r.created, r.requester_id, 1, s.id, " +
+                ITEM_COLUMNS + " FROM (" + requests + ") r JOIN request_suggestions s ON s.request_id = r.id " +
+                "JOIN items i ON i.id = s.item_id AND " + ACTIVE_OWNER;
+        return jdbcTemplate.query(items + (suggestions ? suggested : "") +
+                        " ORDER BY created DESC, id DESC, kind, position, item_id",
+                params, (ResultSetExtractor<List<ItemRequestFeedEntry>>) this::fold);
+    }
+
+    private List<ItemRequestFeedEntry> fold(ResultSet rs) throws SQLException {
+        Map<Long, ItemRequestFeedEntry> entries = new LinkedHashMap<>();
+        while (rs.next()) {
+            long id = rs.getLong("id");
+            ItemRequestFeedEntry entry = entries.get(id);
+            if (entry == null) {
+                entry = toEntry(rs);
+                entry.getRequest().setItems(new ArrayList<>());
+                entry.getRequest().setSuggestions(new ArrayList<>());
+                entries.put(id, entry);
+            }
+            long itemId = rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                long requestId = rs.getLong("item_request_id");
+                boolean noRequest = rs.wasNull();
+                ItemDtoRequest item = ItemDtoRequest.builder()
+                        .id(itemId)
+                        .name(rs.getString("item_name"))
+                        .description(rs.getString("item_description"))
+                        .available(rs.getBoolean("item_available"))
+                        .requestId(noRequest ? null : requestId)
+                        .build();
+                (rs.getInt("kind") == 0 ? entry.getRequest().getItems() : entry.getRequest().getSuggestions()).add(item);
+            }
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    private ItemRequestFeedEntry toEntry(ResultSet rs) throws SQLException {
+        return new ItemRequestFeedEntry(rs.getLong("requester_id"), ResponseItemRequestDto.builder()
+                .id(rs.getLong("id"))
+                .description(rs.getString("description"))
+                .created(rs.getTimestamp("created").toLocalDateTime())
+                .suggestions(List.of())
+                .build());
+    }
+
+    private List<ItemDtoRequest> parseItems(String json, long requestId) throws SQLException {
+        List<ItemDtoRequest> items = new ArrayList<>();
+        if (json == null) {
+            return items;
+        }
+        try {
+            for (JsonNode node : objectMapper.readTree(json)) {
+                items.add(ItemDtoRequest.builder()
+                        .id(node.get("id").asLong())
+                        .name(node.get("name").asText())
+                        .description(node.get("description").asText())
+                        .available(node.get("available").asBoolean())
+                        .requestId(node.get("requestId").isNull() ? null : node.get("requestId").asLong())
+                        .build());
+            }
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Не удалось разобрать вещи запроса " + requestId, e);
+        }
+        return items;
+    }
+}
@@ -1,15 +1,18 @@
 package ru.practicum.shareit.request.repository;
 
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
 
-    List<ItemRequest> findAllByRequesterId(Long requesterId, Sort created);
+    @Query("SELECT r FROM ItemRequest r WHERE NOT EXISTS (SELECT i.id FROM Item i WHERE i.request = r)")
+    List<ItemRequest> findAllOpen();
 
-    List<ItemRequest> findAllByRequesterIdIsNot(Long requesterId, PageRequest page);
+    @Query("SELECT r FROM ItemRequest r WHERE r.created > ?1 AND r.requester.deleted = false " +
+            "AND NOT EXISTS (SELECT i.id FROM Item i WHERE i.request = r)")
+    List<ItemRequest> findAllOpenCreatedAfter(LocalDateTime created);
 }
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.request.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RequestSuggestionRepository extends JpaRepository<RequestSuggestion, Long> {
+
+    @Query("SELECT s FROM RequestSuggestion s JOIN FETCH s.item WHERE s.request.id IN ?1 ORDER BY s.id")
+    List<RequestSuggestion> findAllByRequestIdIn(Collection<Long> requestIds);
+}
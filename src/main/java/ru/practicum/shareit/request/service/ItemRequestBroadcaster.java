@@ -0,0 +1,220 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка новых запросов вещей подписчикам SSE.
+ * Публикация только кладет запрос в ограниченный буфер каждого подписчика (при переполнении вытесняется самый старый),
+ * отправку выполняет небольшой пул потоков, поэтому ни публикующий, ни ожидающие подписчики не держат потоки сервлета.
+ * Сама запись в соединение ждется не дольше send-timeout: медленный клиент отключается и не задерживает остальных.
+ */
+@Slf4j
+@Component
+public class ItemRequestBroadcaster {
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long sendTimeoutMillis;
+    private final ExecutorService sender;
+    private final ExecutorService writer;
+    private final ScheduledExecutorService heartbeat;
+
+    public ItemRequestBroadcaster(@Value("${shareit.requests.stream.buffer-size:100}") int bufferSize,
+                                  @Value("${shareit.requests.stream.timeout:30m}") Duration timeout,
+                                  @Value("${shareit.requests.stream.sender-threads:2}") int senderThreads,
+                                  @Value("${shareit.requests.stream.send-timeout:5s}") Duration sendTimeout,
+                                  @Value("${shareit.requests.stream.heartbeat-interval:15s}") Duration heartbeatInterval) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutMillis = sendTimeout.toMillis();
+        AtomicInteger threads = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "request-stream-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // запись, не уложившаяся в таймаут, остается висеть здесь до разрыва соединения, а не в пуле sender
+        AtomicInteger writers = new AtomicInteger();
+        this.writer = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "request-stream-writer-" + writers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "request-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeatMillis = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::ping, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        subscribe(userId, emitter);
+        return emitter;
+    }
+
+    void subscribe(long userId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        log.info("Пользователь с id {} подписался на новые запросы, подписчиков : {}", userId, subscribers.size());
+    }
+
+    public void publish(long requesterId, ResponseItemRequestDto itemRequest) {
+        TransactionHooks.afterCommit(() -> fanOut(requesterId, itemRequest));
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        writer.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private void fanOut(long requesterId, ResponseItemRequestDto itemRequest) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.userId != requesterId) {
+                subscriber.offer(itemRequest);
+            }
+        }
+    }
+
+    private void ping() {
+        subscribers.forEach(Subscriber::ping);
+    }
+
+    private class Subscriber {
+        private final long userId;
+        private final SseEmitter emitter;
+        private final Deque<ResponseItemRequestDto> buffer = new ArrayDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean pingPending;
+        private long dropped;
+
+        Subscriber(long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(ResponseItemRequestDto itemRequest) {
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize) {
+                    buffer.pollFirst();
+                    dropped++;
+                }
+                buffer.addLast(itemRequest);
+            }
+            scheduleDrain();
+        }
+
+        void ping() {
+            pingPending = true;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                if (pingPending) {
+                    pingPending = false;
+                    send(SseEmitter.event().comment("ping"));
+                }
+                ResponseItemRequestDto itemRequest;
+                while ((itemRequest = poll()) != null) {
+                    send(SseEmitter.event()
+                            .id(String.valueOf(itemRequest.getId()))
+                            .name("request")
+                            .data(itemRequest));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.info("Подписчик с id {} отключился : {}", userId, e.getMessage());
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+                return;
+            } catch (TimeoutException e) {
+                log.warn("Подписчик с id {} не принял событие за {} мс, отключаем", userId, sendTimeoutMillis);
+                subscribers.remove(this);
+                // emitter занят зависшей записью; завершим его, когда она закончится
+                writer.execute(() -> emitter.completeWithError(e));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            synchronized (buffer) {
+                if (buffer.isEmpty() && !pingPending) {
+                    return;
+                }
+            }
+            scheduleDrain();
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException, TimeoutException, InterruptedException {
+            Future<?> write = writer.submit(() -> {
+                emitter.send(event);
+                return null;
+            });
+            try {
+                write.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        private ResponseItemRequestDto poll() {
+            synchronized (buffer) {
+                if (dropped > 0) {
+                    log.warn("Подписчик с id {} не успевает получать запросы, пропущено : {}", userId, dropped);
+                    dropped = 0;
+                }
+                return buffer.pollFirst();
+            }
+        }
+    }
+}
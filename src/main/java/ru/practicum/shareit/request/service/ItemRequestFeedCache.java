@@ -0,0 +1,157 @@
+package ru.practicum.shareit.request.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.request.dto.ItemRequestFeedEntry;
+import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
+import ru.practicum.shareit.request.repository.ItemRequestFeedRepository;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Общий для всех пользователей кеш самых новых запросов вместе с вещами.
+ * Снимок помечен версией, которая увеличивается при создании запроса или вещи по запросу и еще раз после
+ * завершения транзакции, чтобы снимок с незакоммиченными данными не пережил ее. Версия живет в памяти
+ * одного процесса, поэтому снимок еще и устаревает через max-age — так до него доходят изменения с других узлов.
+ * Снимок читается из основной БД: в пишущей транзакции вызывающего, если она есть, иначе в отдельной
+ * пишущей транзакции, а не из реплики в readOnly-транзакции. Свои запросы пользователя
+ * отфильтровываются в памяти. Если после фильтрации снимка не хватает на страницу,
+ * страница читается из БД.
+ */
+@Slf4j
+@Component
+public class ItemRequestFeedCache {
+
+    private final ItemRequestFeedRepository feedRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final long maxAgeNanos;
+    private final AtomicLong version = new AtomicLong();
+    private final Object loadLock = new Object();
+    private volatile Snapshot snapshot;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter loads;
+    private final Timer age;
+
+    public ItemRequestFeedCache(ItemRequestFeedRepository feedRepository, MeterRegistry meterRegistry,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${shareit.requests.feed-cache.size:500}") int capacity,
+                                @Value("${shareit.requests.feed-cache.max-age:30s}") Duration maxAge) {
+        this.feedRepository = feedRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.capacity = capacity;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.hits = meterRegistry.counter("shareit.requests.feed.cache", "result", "hit");
+        this.misses = meterRegistry.counter("shareit.requests.feed.cache", "result", "miss");
+        this.loads = meterRegistry.counter("shareit.requests.feed.cache.loads");
+        this.age = Timer.builder("shareit.requests.feed.cache.age")
+                .description("Возраст снимка ленты запросов при чтении из кеша")
+                .register(meterRegistry);
+    }
+
+    public Optional<List<ResponseItemRequestDto>> findAll(long userId, int offset, int size) {
+        return page(userId, offset, size, request -> true);
+    }
+
+    public Optional<List<ResponseItemRequestDto>> findAllBefore(long userId, LocalDateTime created, long id, int size) {
+        return page(userId, 0, size, request -> request.getCreated().isBefore(created)
+                || request.getCreated().isEqual(created) && request.getId() < id);
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+        TransactionHooks.afterCompletion(version::incrementAndGet);
+    }
+
+    private Optional<List<ResponseItemRequestDto>> page(long userId, int offset, int size,
+                                                        Predicate<ResponseItemRequestDto> filter) {
+        Snapshot current = current();
+        List<ResponseItemRequestDto> page = new ArrayList<>(size);
+        int skipped = 0;
+        for (ItemRequestFeedEntry entry : current.entries) {
+            if (entry.getRequesterId() == userId || !filter.test(entry.getRequest())) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            page.add(entry.getRequest());
+            if (page.size() == size) {
+                break;
+            }
+        }
+        if (page.size() < size && !current.complete) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        age.record(System.nanoTime() - current.loadedAt, TimeUnit.NANOSECONDS);
+        return Optional.of(page);
+    }
+
+    private Snapshot current() {
+        long expected = version.get();
+        Snapshot current = snapshot;
+        if (isFresh(current, expected)) {
+            return current;
+        }
+        synchronized (loadLock) {
+            expected = version.get();
+            current = snapshot;
+            if (isFresh(current, expected)) {
+                return current;
+            }
+            List<ItemRequestFeedEntry> entries = load();
+            current = new Snapshot(expected, entries, entries.size() < capacity, System.nanoTime());
+            snapshot = current;
+            loads.increment();
+            log.info("Обновили кеш ленты запросов, версия {} : {} запросов", expected, entries.size());
+            return current;
+        }
+    }
+
+    private List<ItemRequestFeedEntry> load() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return feedRepository.findNewest(capacity);
+        }
+        return transactionTemplate.execute(status -> feedRepository.findNewest(capacity));
+    }
+
+    private boolean isFresh(Snapshot current, long expected) {
+        return current != null && current.version == expected && System.nanoTime() - current.loadedAt < maxAgeNanos;
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final List<ItemRequestFeedEntry> entries;
+        private final boolean complete;
+        private final long loadedAt;
+
+        Snapshot(long version, List<ItemRequestFeedEntry> entries, boolean complete, long loadedAt) {
+            this.version = version;
+            this.entries = entries;
+            this.complete = complete;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
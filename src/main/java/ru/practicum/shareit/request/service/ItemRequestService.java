@@ -1,8 +1,10 @@
 package ru.practicum.shareit.request.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.request.dto.RequestItemRequestDto;
 import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemRequestService {
@@ -13,5 +15,9 @@ public interface ItemRequestService {
 
     List<ResponseItemRequestDto> findAll(long userId, int from, int size);
 
+    List<ResponseItemRequestDto> findAllBefore(long userId, LocalDateTime created, long id, int size);
+
     ResponseItemRequestDto getById(long itemId, long userId);
+
+    SseEmitter subscribe(long userId);
 }
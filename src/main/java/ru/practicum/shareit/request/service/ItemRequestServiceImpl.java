@@ -3,10 +3,9 @@ package ru.practicum.shareit.request.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.exception.EntityNotFoundException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
@@ -14,53 +13,89 @@ import ru.practicum.shareit.request.ItemRequestMapper;
 import ru.practicum.shareit.request.dto.RequestItemRequestDto;
 import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.model.RequestSuggestion;
+import ru.practicum.shareit.request.repository.ItemRequestFeedRepository;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistenceIndex;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import static org.springframework.data.domain.Sort.Direction.DESC;
-
 @Slf4j
 @Service
 @Transactional
 public class ItemRequestServiceImpl implements ItemRequestService {
 
     private final UserRepository userRepository;
+    private final UserExistenceIndex userExistenceIndex;
     private final ItemRepository itemRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final RequestSuggestionRepository requestSuggestionRepository;
+    private final OpenRequestIndex openRequestIndex;
+    private final ItemRequestFeedRepository itemRequestFeedRepository;
+    private final ItemRequestBroadcaster itemRequestBroadcaster;
+    private final ItemRequestFeedCache itemRequestFeedCache;
 
     @Autowired
-    public ItemRequestServiceImpl(UserRepository userRepository, ItemRepository itemRepository,
-                                  ItemRequestRepository itemRequestRepository) {
+    public ItemRequestServiceImpl(UserRepository userRepository, UserExistenceIndex userExistenceIndex,
+                                  ItemRepository itemRepository,
+                                  ItemRequestRepository itemRequestRepository,
+                                  RequestSuggestionRepository requestSuggestionRepository,
+                                  OpenRequestIndex openRequestIndex,
+                                  ItemRequestFeedRepository itemRequestFeedRepository,
+                                  ItemRequestBroadcaster itemRequestBroadcaster,
+                                  ItemRequestFeedCache itemRequestFeedCache) {
         this.userRepository = userRepository;
+        this.userExistenceIndex = userExistenceIndex;
         this.itemRepository = itemRepository;
         this.itemRequestRepository = itemRequestRepository;
+        this.requestSuggestionRepository = requestSuggestionRepository;
+        this.openRequestIndex = openRequestIndex;
+        this.itemRequestFeedRepository = itemRequestFeedRepository;
+        this.itemRequestBroadcaster = itemRequestBroadcaster;
+        this.itemRequestFeedCache = itemRequestFeedCache;
     }
 
     @Override
     public ResponseItemRequestDto create(RequestItemRequestDto itemRequestDto, long userId) {
-        User requester = userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId)));
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
+        User requester = userRepository.getReferenceById(userId);
         ItemRequest itemRequest = ItemRequestMapper.toItemRequest(itemRequestDto, requester);
         log.info("Сохраняем в БД запрос на вещь : {}", itemRequest);
         ItemRequest savedItemRequest = itemRequestRepository.save(itemRequest);
         log.info("Возвращаем в контроллер сохраненный запрос на вещь : {}", savedItemRequest);
-        return ItemRequestMapper.itemRequestToResponseItemRequestDto(savedItemRequest, new ArrayList<>());
+        openRequestIndex.add(savedItemRequest);
+        itemRequestFeedCache.invalidate();
+        ResponseItemRequestDto response = ItemRequestMapper.itemRequestToResponseItemRequestDto(
+                savedItemRequest, new ArrayList<>());
+        itemRequestBroadcaster.publish(userId, response);
+        return response;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SseEmitter subscribe(long userId) {
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
+        return itemRequestBroadcaster.subscribe(userId);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ResponseItemRequestDto> findAllByUserId(long userId) {
-        userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId)));
-        List<ItemRequest> itemRequests = itemRequestRepository.findAllByRequesterId(userId, Sort.by(DESC, "created"));
-        Map<Long, List<Item>> items = getItemsByItemRequests(itemRequests);
-        List<ResponseItemRequestDto> response = ItemRequestMapper.itemRequestsToResponseItemRequestDto(itemRequests, items);
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
+        List<ResponseItemRequestDto> response = itemRequestFeedRepository.findAllByRequesterId(userId);
         log.info("Передаем в контроллер список запросов пользователя с id {} :{}", userId, response);
         return response;
     }
@@ -68,33 +103,54 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     @Override
     @Transactional(readOnly = true)
     public List<ResponseItemRequestDto> findAll(long userId, int from, int size) {
-        userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId)));
-        PageRequest page = PageRequest.of(from / size, size,Sort.by(DESC, "created"));
-        List<ItemRequest> itemRequests = itemRequestRepository.findAllByRequesterIdIsNot(userId, page);
-        Map<Long, List<Item>> items = getItemsByItemRequests(itemRequests);
-        List<ResponseItemRequestDto> response = ItemRequestMapper.itemRequestsToResponseItemRequestDto(itemRequests, items);
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
+        int offset = from / size * size;
+        List<ResponseItemRequestDto> response = itemRequestFeedCache.findAll(userId, offset, size)
+                .orElseGet(() -> itemRequestFeedRepository.findAllByRequesterIdIsNot(userId, offset, size));
         log.info("Передаем в контроллер список запросов {}", response);
         return response;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResponseItemRequestDto> findAllBefore(long userId, LocalDateTime created, long id, int size) {
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
+        List<ResponseItemRequestDto> response = itemRequestFeedCache.findAllBefore(userId, created, id, size)
+                .orElseGet(() -> itemRequestFeedRepository.findAllByRequesterIdIsNotBefore(userId, created, id, size));
+        log.info("Передаем в контроллер список запросов после ({}, {}) : {}", created, id, response);
+        return response;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public ResponseItemRequestDto getById(long requestId, long userId) {
-        userRepository.findById(userId).orElseThrow(
-                () -> new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId)));
+        if (!userExistenceIndex.exists(userId)) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", userId));
+        }
         ItemRequest itemRequest = itemRequestRepository.findById(requestId)
                 .orElseThrow(() -> new EntityNotFoundException(String.format("Запрос с id %d не существует", requestId)));
 
         List<Item> items = itemRepository.findAllByRequestInOrderByRequestId(List.of(itemRequest));
-        ResponseItemRequestDto response = ItemRequestMapper.itemRequestToResponseItemRequestDto(itemRequest, items);
+        List<Item> suggestions = itemRequest.getRequester().getId() == userId
+                ? getSuggestionsByItemRequestIds(List.of(requestId)).getOrDefault(requestId, List.of())
+                : List.of();
+        ResponseItemRequestDto response = ItemRequestMapper.itemRequestToResponseItemRequestDto(
+                itemRequest, items, suggestions);
         log.info("Передаем в контроллер  запрос {}", response);
         return response;
     }
 
-    private Map<Long, List<Item>> getItemsByItemRequests(List<ItemRequest> itemRequests) {
-        return itemRepository.findAllByRequestInOrderByRequestId(itemRequests)
+    private Map<Long, List<Item>> getSuggestionsByItemRequestIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return requestSuggestionRepository.findAllByRequestIdIn(ids)
                 .stream()
-                .collect(Collectors.groupingBy(item -> item.getRequest().getId(), Collectors.toList()));
+                .collect(Collectors.groupingBy(suggestion -> suggestion.getRequest().getId(),
+                        Collectors.mapping(RequestSuggestion::getItem, Collectors.toList())));
     }
 }
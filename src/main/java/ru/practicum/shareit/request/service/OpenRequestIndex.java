@@ -0,0 +1,165 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Инвертированный индекс по описаниям открытых запросов (запросов, к которым еще не добавлена ни одна вещь).
+ * Позволяет без обращения к БД найти запросы, подходящие под название и описание новой вещи.
+ * Запросы, созданные другими экземплярами приложения, дочитываются перед каждым подбором по индексу
+ * requests (created): берутся открытые запросы новее последнего увиденного за вычетом lag, который покрывает
+ * расхождение часов узлов и транзакции, закоммиченные не в порядке created. Уже известные запросы пропускаются.
+ */
+@Slf4j
+@Component
+public class OpenRequestIndex {
+
+    private static final int MIN_TOKEN_LENGTH = 3;
+    private static final int STEM_LENGTH = 6;
+
+    private final ItemRequestRepository itemRequestRepository;
+    private final double minScore;
+    private final int maxMatches;
+    private final Duration lag;
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, OpenRequest> requests = new HashMap<>();
+    private LocalDateTime lastSeen = LocalDateTime.now();
+
+    public OpenRequestIndex(ItemRequestRepository itemRequestRepository,
+                            @Value("${shareit.requests.matching.min-score:0.5}") double minScore,
+                            @Value("${shareit.requests.matching.max-matches:5}") int maxMatches,
+                            @Value("${shareit.requests.matching.lag:10s}") Duration lag) {
+        this.itemRequestRepository = itemRequestRepository;
+        this.minScore = minScore;
+        this.maxMatches = maxMatches;
+        this.lag = lag;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        postings.clear();
+        requests.clear();
+        lastSeen = LocalDateTime.now();
+        itemRequestRepository.findAllOpen().forEach(this::index);
+        log.info("Индекс открытых запросов построен : {} запросов, {} слов", requests.size(), postings.size());
+    }
+
+    public void poll() {
+        LocalDateTime since;
+        synchronized (this) {
+            since = lastSeen.minus(lag);
+        }
+        List<ItemRequest> created = itemRequestRepository.findAllOpenCreatedAfter(since);
+        synchronized (this) {
+            for (ItemRequest itemRequest : created) {
+                if (!requests.containsKey(itemRequest.getId())) {
+                    index(itemRequest);
+                }
+                if (itemRequest.getCreated().isAfter(lastSeen)) {
+                    lastSeen = itemRequest.getCreated();
+                }
+            }
+        }
+    }
+
+    public void add(ItemRequest itemRequest) {
+        TransactionHooks.afterCommit(() -> index(itemRequest));
+    }
+
+    public void close(long requestId) {
+        TransactionHooks.afterCommit(() -> remove(requestId));
+    }
+
+    public void removeRequester(long requesterId) {
+        TransactionHooks.afterCommit(() -> removeAll(requesterId));
+    }
+
+    public synchronized List<Long> match(String text, long ownerId) {
+        Map<Long, Integer> hits = new HashMap<>();
+        for (String token : tokenize(text)) {
+            for (Long requestId : postings.getOrDefault(token, Set.of())) {
+                hits.merge(requestId, 1, Integer::sum);
+            }
+        }
+        return hits.entrySet().stream()
+                .filter(hit -> requests.get(hit.getKey()).requesterId != ownerId)
+                .filter(hit -> score(hit) >= minScore)
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxMatches)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    synchronized void index(ItemRequest itemRequest) {
+        Set<String> tokens = tokenize(itemRequest.getDescription());
+        if (tokens.isEmpty()) {
+            return;
+        }
+        requests.put(itemRequest.getId(), new OpenRequest(itemRequest.getRequester().getId(), tokens));
+        tokens.forEach(token -> postings.computeIfAbsent(token, t -> new HashSet<>()).add(itemRequest.getId()));
+    }
+
+    synchronized void remove(long requestId) {
+        OpenRequest request = requests.remove(requestId);
+        if (request == null) {
+            return;
+        }
+        for (String token : request.tokens) {
+            Set<Long> ids = postings.get(token);
+            ids.remove(requestId);
+            if (ids.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    synchronized void removeAll(long requesterId) {
+        List<Long> ids = requests.entrySet().stream()
+                .filter(request -> request.getValue().requesterId == requesterId)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        ids.forEach(this::remove);
+    }
+
+    private double score(Map.Entry<Long, Integer> hit) {
+        return (double) hit.getValue() / requests.get(hit.getKey()).tokens.size();
+    }
+
+    static Set<String> tokenize(String text) {
+        if (text == null) {
+            return Set.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+"))
+                .filter(token -> token.length() >= MIN_TOKEN_LENGTH)
+                .map(token -> token.length() > STEM_LENGTH ? token.substring(0, STEM_LENGTH) : token)
+                .collect(Collectors.toSet());
+    }
+
+    private static class OpenRequest {
+        private final long requesterId;
+        private final Set<String> tokens;
+
+        OpenRequest(long requesterId, Set<String> tokens) {
+            this.requesterId = requesterId;
+            this.tokens = tokens;
+        }
+    }
+}
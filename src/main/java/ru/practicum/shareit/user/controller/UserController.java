@@ -1,26 +1,54 @@
 package ru.practicum.shareit.user.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportError;
+import ru.practicum.shareit.user.dto.UserImportProgress;
 import ru.practicum.shareit.group.Create;
 import ru.practicum.shareit.group.Update;
+import ru.practicum.shareit.user.service.UserImporter;
 import ru.practicum.shareit.user.service.UserService;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @Slf4j
+@Validated
 @RestController
 @RequestMapping(path = "/users")
 public class UserController {
 
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    public static final String TEXT_CSV = "text/csv";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final UserService userService;
+    private final UserImporter userImporter;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserImporter userImporter, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userImporter = userImporter;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -29,6 +57,34 @@ public class UserController {
         return userService.create(userDto);
     }
 
+    @PostMapping(path = "/import", consumes = {TEXT_CSV, APPLICATION_NDJSON}, produces = APPLICATION_NDJSON)
+    public void importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body,
+                            HttpServletResponse response) throws IOException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        UserImporter.Format format = mediaType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? UserImporter.Format.CSV : UserImporter.Format.NDJSON;
+        Charset charset = mediaType.getCharset() == null ? StandardCharsets.UTF_8 : mediaType.getCharset();
+        log.info("Запрос на импорт пользователей в формате {}", format);
+        response.setContentType(APPLICATION_NDJSON);
+        OutputStream out = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writer();
+        userImporter.importUsers(new BufferedReader(new InputStreamReader(body, charset)), format,
+                new UserImporter.Listener() {
+                    @Override
+                    public void onError(UserImportError error) throws IOException {
+                        out.write(writer.writeValueAsBytes(error));
+                        out.write('\n');
+                    }
+
+                    @Override
+                    public void onProgress(UserImportProgress progress) throws IOException {
+                        out.write(writer.writeValueAsBytes(progress));
+                        out.write('\n');
+                        out.flush();
+                    }
+                });
+    }
+
     @PatchMapping("{userId}")
     public UserDto patch(@Validated(Update.class) @RequestBody UserDto userDto, @PathVariable long userId) {
         log.info("Запрос на изменение пользователя с id {}, данные для замены {}", userId, userDto);
@@ -36,9 +92,33 @@ public class UserController {
     }
 
     @GetMapping
-    public List<UserDto> getAll() {
-        log.info("Запрос на получение всех пользователей");
-        return userService.getAllUsers();
+    public List<UserDto> getAll(@RequestParam(name = "afterId", required = false) @Min(0) Long afterId,
+                                @RequestParam(name = "size", required = false) @Min(1) @Max(1000) Integer size) {
+        if (afterId == null && size == null) {
+            log.info("Запрос на получение всех пользователей");
+            return userService.getAllUsers();
+        }
+        long from = afterId == null ? 0 : afterId;
+        int limit = size == null ? DEFAULT_PAGE_SIZE : size;
+        log.info("Запрос на получение пользователей после id {}, количество {}", from, limit);
+        return userService.getUsers(from, limit);
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON)
+    public StreamingResponseBody streamAll() {
+        log.info("Запрос на выгрузку всех пользователей");
+        return out -> {
+            ObjectWriter writer = objectMapper.writerFor(UserDto.class);
+            userService.streamAllUsers(user -> {
+                try {
+                    out.write(writer.writeValueAsBytes(user));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
     }
 
     @GetMapping("{userId}")
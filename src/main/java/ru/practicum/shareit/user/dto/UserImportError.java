@@ -0,0 +1,9 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.Value;
+
+@Value
+public class UserImportError {
+    long line;
+    String message;
+}
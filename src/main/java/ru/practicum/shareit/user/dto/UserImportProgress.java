@@ -0,0 +1,11 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.Value;
+
+@Value
+public class UserImportProgress {
+    long lines;
+    long imported;
+    long failed;
+    boolean done;
+}
@@ -0,0 +1,70 @@
+package ru.practicum.shareit.user.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.util.PendingWrites;
+
+import javax.sql.DataSource;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Построчное чтение всех пользователей курсором JDBC: строки забираются из БД порциями по fetch-size
+ * и сразу передаются обработчику, не накапливаясь в памяти. Удаленные пользователи, еще не убранные
+ * UserPurger, пропускаются, кроме forEachWithDeleted.
+ */
+@Repository
+public class UserExportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PendingWrites pendingWrites;
+
+    public UserExportRepository(DataSource dataSource, PendingWrites pendingWrites,
+                                @Value("${shareit.users.export.fetch-size:500}") int fetchSize) {
+        this.pendingWrites = pendingWrites;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public long forEach(Consumer<UserDto> action) {
+        return forEach("SELECT id, name, email FROM users WHERE deleted = FALSE ORDER BY id", action);
+    }
+
+    public long forEachWithDeleted(Consumer<UserDto> action) {
+        return forEach("SELECT id, name, email FROM users ORDER BY id", action);
+    }
+
+    public long forEachId(LongConsumer action) {
+        return forEachId("SELECT id FROM users WHERE deleted = FALSE", action);
+    }
+
+    public long forEachDeletedId(LongConsumer action) {
+        return forEachId("SELECT id FROM users WHERE deleted = TRUE", action);
+    }
+
+    private long forEach(String sql, Consumer<UserDto> action) {
+        pendingWrites.flush();
+        long[] count = new long[1];
+        jdbcTemplate.query(sql, rs -> {
+            action.accept(UserDto.builder()
+                    .id(rs.getLong("id"))
+                    .name(rs.getString("name"))
+                    .email(rs.getString("email"))
+                    .build());
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    private long forEachId(String sql, LongConsumer action) {
+        pendingWrites.flush();
+        long[] count = new long[1];
+        jdbcTemplate.query(sql, rs -> {
+            action.accept(rs.getLong("id"));
+            count[0]++;
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.shareit.user.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserEmailIndex;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетная вставка пользователей одним JDBC batch без создания сущностей User.
+ */
+@Repository
+public class UserImportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public UserImportRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    // нормализованный email -> id вставленных пользователей
+    public Map<String, Long> insertAll(List<UserDto> users) {
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email) VALUES (?, ?)", users.stream()
+                .map(user -> new Object[]{user.getName(), user.getEmail()})
+                .collect(Collectors.toList()));
+        Map<String, Long> ids = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, email FROM users WHERE email IN (:emails)",
+                Map.of("emails", users.stream().map(UserDto::getEmail).collect(Collectors.toList())),
+                rs -> {
+                    ids.put(UserEmailIndex.normalize(rs.getString("email")), rs.getLong("id"));
+                });
+        return ids;
+    }
+}
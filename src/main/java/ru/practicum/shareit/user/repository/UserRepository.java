@@ -1,7 +1,23 @@
 package ru.practicum.shareit.user.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.user.model.User;
 
+import java.util.List;
+
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    List<User> findAllByIdGreaterThanOrderById(long id, Pageable page);
+
+    // по выражению lower(trim(email)) на PostgreSQL построен уникальный индекс uc_users_email_key;
+    // удаленные пользователи учитываются, их адрес занят до очистки
+    @Query(value = "SELECT COUNT(*) > 0 FROM users WHERE LOWER(TRIM(email)) = ?1 AND id <> ?2", nativeQuery = true)
+    boolean existsByEmailKeyAndIdNot(String emailKey, long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.deleted = true WHERE u.id = ?1 AND u.deleted = false")
+    int markDeleted(long id);
 }
@@ -0,0 +1,103 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.user.repository.UserExportRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Занятые адреса электронной почты в нормализованном виде (без пробелов по краям, в нижнем регистре).
+ * Индекс свой у каждого процесса, поэтому это только подсказка: промах пропускает запись в БД,
+ * а попадание подтверждается индексным запросом, и только тогда дубликат отклоняется до записи.
+ * Окончательно решают ограничения uc_users_email и, на PostgreSQL, uc_users_email_key по нормализованному адресу.
+ * Адрес резервируется на время транзакции и освобождается при откате; адрес удаленного пользователя
+ * освобождается только после того, как UserPurger уберет его строку.
+ */
+@Slf4j
+@Component
+public class UserEmailIndex {
+
+    private final UserExportRepository userExportRepository;
+    private final UserRepository userRepository;
+    private final Map<String, Long> owners = new ConcurrentHashMap<>();
+    private final Map<Long, String> emails = new ConcurrentHashMap<>();
+    private final AtomicLong reservations = new AtomicLong();
+
+    public UserEmailIndex(UserExportRepository userExportRepository, UserRepository userRepository) {
+        this.userExportRepository = userExportRepository;
+        this.userRepository = userRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long count = userExportRepository.forEachWithDeleted(user -> put(normalize(user.getEmail()), user.getId()));
+        log.info("Индекс адресов почты заполнен : {} шт.", count);
+    }
+
+    // 0 - адрес уже принадлежит userId, иначе номер резервации для confirm
+    public long reserve(String email, Long userId) {
+        String key = normalize(email);
+        long reservation = reservations.decrementAndGet();
+        Long owner = owners.putIfAbsent(key, reservation);
+        if (owner != null) {
+            if (owner.equals(userId)) {
+                return 0;
+            }
+            if (userRepository.existsByEmailKeyAndIdNot(key, userId == null ? 0 : userId)) {
+                throw new ConflictException(String.format("Пользователь с email %s уже существует", email));
+            }
+            // адрес освобожден на другом узле или еще не закоммичен здесь: дальше решает ограничение БД
+            owners.put(key, reservation);
+        }
+        TransactionHooks.afterCompletion(() -> { }, () -> owners.remove(key, reservation));
+        return reservation;
+    }
+
+    // нарушение уникальности адреса, а не другое ограничение
+    public static boolean isDuplicate(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("uc_users_email");
+    }
+
+    public void confirm(String email, long reservation, long userId) {
+        if (reservation == 0) {
+            return;
+        }
+        String key = normalize(email);
+        owners.replace(key, reservation, userId);
+        TransactionHooks.afterCompletion(() -> {
+            String previous = emails.put(userId, key);
+            if (previous != null && !previous.equals(key)) {
+                owners.remove(previous, userId);
+            }
+        }, () -> owners.remove(key, userId));
+    }
+
+    public void onDeleted(long userId) {
+        TransactionHooks.afterCommit(() -> {
+            String key = emails.remove(userId);
+            if (key != null) {
+                owners.remove(key, userId);
+            }
+        });
+    }
+
+    private void put(String key, long userId) {
+        owners.put(key, userId);
+        emails.put(userId, key);
+    }
+
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.user.repository.UserExportRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.util.TransactionHooks;
+
+import java.time.Duration;
+import java.util.BitSet;
+
+/**
+ * Проверка существования пользователя без загрузки сущности.
+ * Идентификаторы известных пользователей хранятся в битовой карте, которая заполняется при старте
+ * и обновляется при создании и удалении пользователей; если бита нет, существование проверяется запросом в БД.
+ * Удаление на другом экземпляре приложения сюда не доходит, поэтому положительный ответ живет не дольше ttl:
+ * по его истечении карта очищается и пользователи заново подтверждаются запросом.
+ * Идентификаторы удаленных пользователей не переиспользуются, поэтому они хранятся во второй карте
+ * и отклоняются без запроса.
+ */
+@Slf4j
+@Component
+public class UserExistenceIndex {
+
+    private final UserRepository userRepository;
+    private final UserExportRepository userExportRepository;
+    private final BitSet ids = new BitSet();
+    private final BitSet deleted = new BitSet();
+    private final long ttlNanos;
+    private long confirmedSince = System.nanoTime();
+
+    public UserExistenceIndex(UserRepository userRepository, UserExportRepository userExportRepository,
+                              @Value("${shareit.users.existence.ttl:5s}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.userExportRepository = userExportRepository;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (ids) {
+            confirmedSince = System.nanoTime();
+        }
+        long count = userExportRepository.forEachId(this::add);
+        long removed = userExportRepository.forEachDeletedId(this::markDeleted);
+        log.info("Индекс пользователей заполнен : {} шт., удаленных {} шт.", count, removed);
+    }
+
+    public boolean exists(long userId) {
+        if (contains(userId)) {
+            return true;
+        }
+        if (isDeleted(userId)) {
+            return false;
+        }
+        boolean exists = userRepository.existsById(userId);
+        if (exists) {
+            TransactionHooks.afterCommit(() -> add(userId));
+        }
+        return exists;
+    }
+
+    public void onCreated(long userId) {
+        TransactionHooks.afterCommit(() -> add(userId));
+    }
+
+    // до коммита удаление может откатиться, а отметка в deleted уже не снимается
+    public void onDeleted(long userId) {
+        TransactionHooks.afterCommit(() -> markDeleted(userId));
+    }
+
+    private boolean contains(long userId) {
+        if (!fits(userId)) {
+            return false;
+        }
+        synchronized (ids) {
+            long now = System.nanoTime();
+            if (now - confirmedSince >= ttlNanos) {
+                ids.clear();
+                confirmedSince = now;
+            }
+            return ids.get((int) userId);
+        }
+    }
+
+    private boolean isDeleted(long userId) {
+        if (!fits(userId)) {
+            return false;
+        }
+        synchronized (ids) {
+            return deleted.get((int) userId);
+        }
+    }
+
+    private void markDeleted(long userId) {
+        if (fits(userId)) {
+            synchronized (ids) {
+                ids.clear((int) userId);
+                deleted.set((int) userId);
+            }
+        }
+    }
+
+    private void add(long userId) {
+        if (fits(userId)) {
+            synchronized (ids) {
+                ids.set((int) userId);
+            }
+        }
+    }
+
+    private static boolean fits(long userId) {
+        return userId > 0 && userId <= Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,252 @@
+package ru.practicum.shareit.user.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.group.Create;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportError;
+import ru.practicum.shareit.user.dto.UserImportProgress;
+import ru.practicum.shareit.user.repository.UserImportRepository;
+
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Импорт пользователей из CSV (name,email; строка заголовка необязательна) или NDJSON.
+ * Загрузка читается построчно, в памяти держится только текущий пакет. Повторы внутри пакета отсеиваются сразу,
+ * с уже сохраненными пользователями — по UserEmailIndex,
+ * а пакет вставляется одним JDBC batch в своей транзакции. Дубликаты, вставленные другими экземплярами,
+ * индекс может не знать; такой пакет отклоняет ограничение БД, и его строки сохраняются по одной.
+ */
+@Slf4j
+@Component
+public class UserImporter {
+
+    public enum Format { CSV, NDJSON }
+
+    public interface Listener {
+        void onError(UserImportError error) throws IOException;
+
+        void onProgress(UserImportProgress progress) throws IOException;
+    }
+
+    private static final String CSV_HEADER = "name,email";
+
+    private final UserImportRepository userImportRepository;
+    private final UserEmailIndex userEmailIndex;
+    private final UserExistenceIndex userExistenceIndex;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public UserImporter(UserImportRepository userImportRepository, UserEmailIndex userEmailIndex,
+                        UserExistenceIndex userExistenceIndex, UserService userService, ObjectMapper objectMapper,
+                        Validator validator, PlatformTransactionManager transactionManager,
+                        @Value("${shareit.users.import.batch-size:500}") int batchSize) {
+        this.userImportRepository = userImportRepository;
+        this.userEmailIndex = userEmailIndex;
+        this.userExistenceIndex = userExistenceIndex;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    public UserImportProgress importUsers(BufferedReader reader, Format format, Listener listener) throws IOException {
+        Run run = new Run(listener);
+        List<Line> batch = new ArrayList<>(batchSize);
+        long number = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            number++;
+            if (text.isBlank() || format == Format.CSV && number == 1
+                    && CSV_HEADER.equalsIgnoreCase(text.replace(" ", ""))) {
+                continue;
+            }
+            run.lines++;
+            try {
+                batch.add(new Line(number, validate(format == Format.CSV ? parseCsv(text) : parseJson(text))));
+            } catch (IllegalArgumentException e) {
+                run.error(number, e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                flush(batch, run);
+                listener.onProgress(run.progress(false));
+            }
+        }
+        flush(batch, run);
+        UserImportProgress result = run.progress(true);
+        listener.onProgress(result);
+        log.info("Импорт пользователей завершен : {}", result);
+        return result;
+    }
+
+    private void flush(List<Line> batch, Run run) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<UserImportError> rejected = transactionTemplate.execute(status -> insert(batch));
+            run.imported += batch.size() - rejected.size();
+            for (UserImportError error : rejected) {
+                run.error(error.getLine(), error.getMessage());
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пакет импорта отклонен БД, сохраняем по одному : {}", e.getMostSpecificCause().getMessage());
+            for (Line line : batch) {
+                try {
+                    userService.create(line.user);
+                    run.imported++;
+                } catch (ConflictException ex) {
+                    run.error(line.number, ex.getMessage());
+                } catch (DataIntegrityViolationException ex) {
+                    // дубликат, вставленный другим экземпляром, отклоняет ограничение БД
+                    run.error(line.number, UserEmailIndex.isDuplicate(ex)
+                            ? String.format("Пользователь с email %s уже существует", line.user.getEmail())
+                            : ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        batch.clear();
+    }
+
+    private List<UserImportError> insert(List<Line> batch) {
+        List<UserImportError> rejected = new ArrayList<>();
+        List<Line> accepted = new ArrayList<>(batch.size());
+        Set<String> keys = new HashSet<>();
+        for (Line line : batch) {
+            // незакоммиченные резервации индекс больше не отклоняет, поэтому повторы внутри пакета отсеиваются здесь
+            if (!keys.add(UserEmailIndex.normalize(line.user.getEmail()))) {
+                rejected.add(new UserImportError(line.number, String.format("Пользователь с email %s уже существует",
+                        line.user.getEmail())));
+                continue;
+            }
+            try {
+                line.reservation = userEmailIndex.reserve(line.user.getEmail(), null);
+                accepted.add(line);
+            } catch (ConflictException e) {
+                rejected.add(new UserImportError(line.number, e.getMessage()));
+            }
+        }
+        if (accepted.isEmpty()) {
+            return rejected;
+        }
+        Map<String, Long> ids = userImportRepository.insertAll(accepted.stream()
+                .map(line -> line.user)
+                .collect(Collectors.toList()));
+        for (Line line : accepted) {
+            Long id = ids.get(UserEmailIndex.normalize(line.user.getEmail()));
+            if (id == null) {
+                rejected.add(new UserImportError(line.number, String.format("Пользователь с email %s не найден после вставки",
+                        line.user.getEmail())));
+                continue;
+            }
+            userEmailIndex.confirm(line.user.getEmail(), line.reservation, id);
+            userExistenceIndex.onCreated(id);
+        }
+        return rejected;
+    }
+
+    private UserDto validate(UserDto user) {
+        String violations = validator.validate(user, Create.class).stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations);
+        }
+        return user;
+    }
+
+    private UserDto parseJson(String text) {
+        try {
+            UserDto user = objectMapper.readValue(text, UserDto.class);
+            user.setId(null);
+            return user;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    static UserDto parseCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытые кавычки");
+        }
+        fields.add(field.toString().trim());
+        if (fields.size() != 2) {
+            throw new IllegalArgumentException("Ожидается 2 поля " + CSV_HEADER + ", получено " + fields.size());
+        }
+        return UserDto.builder().name(fields.get(0)).email(fields.get(1)).build();
+    }
+
+    private static class Line {
+        private final long number;
+        private final UserDto user;
+        private long reservation;
+
+        Line(long number, UserDto user) {
+            this.number = number;
+            this.user = user;
+        }
+    }
+
+    private static class Run {
+        private final Listener listener;
+        private long lines;
+        private long imported;
+        private long failed;
+
+        Run(Listener listener) {
+            this.listener = listener;
+        }
+
+        void error(long line, String message) throws IOException {
+            failed++;
+            listener.onError(new UserImportError(line, message));
+        }
+
+        UserImportProgress progress(boolean done) {
+            return new UserImportProgress(lines, imported, failed, done);
+        }
+    }
+}
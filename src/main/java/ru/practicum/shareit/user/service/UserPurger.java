@@ -0,0 +1,116 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.service.ItemRequestFeedCache;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Фоновое удаление помеченных пользователей. Зависимые строки удаляются небольшими пакетами,
+ * каждый пакет — отдельная короткая транзакция с паузой между пакетами, чтобы не держать блокировки
+ * на items, requests, bookings, bookings_archive, booking_view, waitlist и comments, как это делал каскад ON DELETE CASCADE
+ * одной командой.
+ * Строка пользователя удаляется последней, когда каскаду уже нечего удалять.
+ */
+@Slf4j
+@Component
+public class UserPurger {
+
+    private static final String BATCH = " FETCH FIRST ? ROWS ONLY)";
+    private static final String OWN_ITEMS = " JOIN items i ON i.id = t.item_id WHERE i.owner_id = ?";
+    private static final List<String> STEPS = List.of(
+            "DELETE FROM comments WHERE id IN (SELECT id FROM comments WHERE author_id = ?" + BATCH,
+            "DELETE FROM comments WHERE id IN (SELECT t.id FROM comments t" + OWN_ITEMS + BATCH,
+            "DELETE FROM bookings WHERE id IN (SELECT id FROM bookings WHERE booker_id = ?" + BATCH,
+            "DELETE FROM bookings WHERE id IN (SELECT id FROM bookings WHERE owner_id = ?" + BATCH,
+            "DELETE FROM bookings_archive WHERE id IN (SELECT id FROM bookings_archive WHERE booker_id = ?" + BATCH,
+            "DELETE FROM bookings_archive WHERE id IN (SELECT id FROM bookings_archive WHERE owner_id = ?" + BATCH,
+            "DELETE FROM booking_view WHERE id IN (SELECT id FROM booking_view WHERE booker_id = ?" + BATCH,
+            "DELETE FROM booking_view WHERE id IN (SELECT id FROM booking_view WHERE owner_id = ?" + BATCH,
+            "DELETE FROM waitlist WHERE id IN (SELECT id FROM waitlist WHERE booker_id = ?" + BATCH,
+            "DELETE FROM waitlist WHERE id IN (SELECT t.id FROM waitlist t" + OWN_ITEMS + BATCH,
+            "DELETE FROM request_suggestions WHERE id IN (SELECT t.id FROM request_suggestions t" + OWN_ITEMS + BATCH,
+            "DELETE FROM request_suggestions WHERE id IN (SELECT t.id FROM request_suggestions t " +
+                    "JOIN requests r ON r.id = t.request_id WHERE r.requester_id = ?" + BATCH,
+            "UPDATE items SET request_id = NULL WHERE id IN (SELECT t.id FROM items t " +
+                    "JOIN requests r ON r.id = t.request_id WHERE r.requester_id = ?" + BATCH,
+            "DELETE FROM items WHERE id IN (SELECT id FROM items WHERE owner_id = ?" + BATCH,
+            "DELETE FROM requests WHERE id IN (SELECT id FROM requests WHERE requester_id = ?" + BATCH);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserEmailIndex userEmailIndex;
+    private final ItemRequestFeedCache itemRequestFeedCache;
+    private final SessionFactory sessionFactory;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int usersPerRun;
+    private final long pauseMillis;
+
+    public UserPurger(JdbcTemplate jdbcTemplate, UserEmailIndex userEmailIndex,
+                      ItemRequestFeedCache itemRequestFeedCache, EntityManagerFactory entityManagerFactory,
+                      @Value("${shareit.users.purge.enabled:true}") boolean enabled,
+                      @Value("${shareit.users.purge.batch-size:500}") int batchSize,
+                      @Value("${shareit.users.purge.users-per-run:10}") int usersPerRun,
+                      @Value("${shareit.users.purge.pause:50ms}") Duration pause) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userEmailIndex = userEmailIndex;
+        this.itemRequestFeedCache = itemRequestFeedCache;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.usersPerRun = usersPerRun;
+        this.pauseMillis = pause.toMillis();
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.users.purge.interval:PT10S}")
+    public void run() {
+        if (enabled) {
+            purgeDeleted();
+        }
+    }
+
+    public int purgeDeleted() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM users WHERE deleted = TRUE ORDER BY id" +
+                " FETCH FIRST ? ROWS ONLY", Long.class, usersPerRun);
+        for (Long id : ids) {
+            try {
+                purge(id);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+        return ids.size();
+    }
+
+    private void purge(long userId) throws InterruptedException {
+        long removed = 0;
+        for (String step : STEPS) {
+            int rows;
+            do {
+                rows = jdbcTemplate.update(step, userId, batchSize);
+                removed += rows;
+                if (rows == batchSize && pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            } while (rows == batchSize);
+        }
+        jdbcTemplate.update("DELETE FROM users WHERE id = ? AND deleted = TRUE", userId);
+        userEmailIndex.onDeleted(userId);
+        itemRequestFeedCache.invalidate();
+        // строки удалены мимо Hibernate, поэтому кеш второго уровня очищается вручную
+        sessionFactory.getCache().evict(User.class, userId);
+        sessionFactory.getCache().evict(Item.class);
+        sessionFactory.getCache().evictQueryRegions();
+        log.info("Удалили данные пользователя с id {} : {} строк", userId, removed);
+    }
+}
@@ -3,12 +3,17 @@ package ru.practicum.shareit.user.service;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     UserDto create(UserDto userDto);
 
     List<UserDto> getAllUsers();
 
+    List<UserDto> getUsers(long afterId, int size);
+
+    long streamAllUsers(Consumer<UserDto> action);
+
     UserDto getUser(Long id);
 
     UserDto update(UserDto user, Long userId);
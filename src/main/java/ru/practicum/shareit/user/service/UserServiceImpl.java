@@ -2,16 +2,21 @@ package ru.practicum.shareit.user.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.request.service.ItemRequestFeedCache;
+import ru.practicum.shareit.request.service.OpenRequestIndex;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.UserMapper;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.exception.EntityNotFoundException;
+import ru.practicum.shareit.user.repository.UserExportRepository;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -20,16 +25,31 @@ import java.util.stream.Collectors;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final UserExportRepository userExportRepository;
+    private final UserExistenceIndex userExistenceIndex;
+    private final UserEmailIndex userEmailIndex;
+    private final OpenRequestIndex openRequestIndex;
+    private final ItemRequestFeedCache itemRequestFeedCache;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, UserExportRepository userExportRepository,
+                           UserExistenceIndex userExistenceIndex, UserEmailIndex userEmailIndex,
+                           OpenRequestIndex openRequestIndex, ItemRequestFeedCache itemRequestFeedCache) {
         this.userRepository = userRepository;
+        this.userExportRepository = userExportRepository;
+        this.userExistenceIndex = userExistenceIndex;
+        this.userEmailIndex = userEmailIndex;
+        this.openRequestIndex = openRequestIndex;
+        this.itemRequestFeedCache = itemRequestFeedCache;
     }
 
     @Override
     public UserDto create(UserDto userDto) {
         User user = UserMapper.toUser(userDto);
+        long reservation = userEmailIndex.reserve(user.getEmail(), null);
         UserDto responseDto = UserMapper.toUserDto(userRepository.save(user));
+        userEmailIndex.confirm(responseDto.getEmail(), reservation, responseDto.getId());
+        userExistenceIndex.onCreated(responseDto.getId());
         log.info("Передаем в контроллер созданного пользователя : {}", responseDto);
         return responseDto;
     }
@@ -39,10 +59,28 @@ public class UserServiceImpl implements UserService {
     public List<UserDto> getAllUsers() {
         List<UserDto> users = userRepository.findAll().stream().map(UserMapper::toUserDto)
                 .collect(Collectors.toList());
-        log.info("Передаем в контроллер список всех пользователей : {}", users);
+        log.info("Передаем в контроллер список всех пользователей : {} шт.", users.size());
         return users;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDto> getUsers(long afterId, int size) {
+        List<UserDto> users = userRepository.findAllByIdGreaterThanOrderById(afterId, PageRequest.ofSize(size))
+                .stream().map(UserMapper::toUserDto)
+                .collect(Collectors.toList());
+        log.info("Передаем в контроллер пользователей после id {} : {} шт.", afterId, users.size());
+        return users;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long streamAllUsers(Consumer<UserDto> action) {
+        long count = userExportRepository.forEach(action);
+        log.info("Выгрузили всех пользователей : {} шт.", count);
+        return count;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public UserDto getUser(Long userId) {
@@ -64,17 +102,26 @@ public class UserServiceImpl implements UserService {
         if (name != null && !name.isBlank()) {
             user.setName(name);
         }
+        long reservation = 0;
         if (email != null && !email.isBlank()) {
+            reservation = userEmailIndex.reserve(email, userId);
             user.setEmail(email);
         }
         User newUSer = userRepository.save(user);
+        userEmailIndex.confirm(newUSer.getEmail(), reservation, userId);
         log.info("Передаем в контроллер обновленного пользователя с id {} : {}", userId, userDto);
         return UserMapper.toUserDto(newUSer);
     }
 
+    // Пользователь только помечается удаленным, его данные убирает UserPurger
     @Override
     public void deleteUserById(Long id) {
-        userRepository.deleteById(id);
+        if (userRepository.markDeleted(id) == 0) {
+            throw new EntityNotFoundException(String.format("Пользователь с id %d не существует", id));
+        }
+        userExistenceIndex.onDeleted(id);
+        openRequestIndex.removeRequester(id);
+        itemRequestFeedCache.invalidate();
         log.info("Удаляем пользователя c id {} ", id);
     }
 }
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.util;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Сущности с идентификаторами из последовательности вставляются не при save, а при flush.
+ * Чтения через JDBC в той же транзакции вызывают flush, чтобы увидеть эти строки,
+ * как Hibernate делает сам перед своими запросами.
+ */
+@Component
+public class PendingWrites {
+
+    private final EntityManager entityManager;
+
+    public PendingWrites(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public void flush() {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+        }
+    }
+}
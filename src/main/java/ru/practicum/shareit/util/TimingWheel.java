@@ -0,0 +1,150 @@
+package ru.practicum.shareit.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Иерархическое колесо таймеров: постановка и отмена ключа за O(1), продвижение часов — O(уровней) на тик.
+ * Нижний уровень покрывает size тиков, каждый следующий — size ячеек предыдущего уровня; ячейка верхнего
+ * уровня при наступлении своего времени пересыпается вниз. Точность срабатывания — один тик.
+ * Не потокобезопасно, синхронизация на вызывающей стороне.
+ */
+public class TimingWheel<K> {
+
+    private final Level root;
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final Set<K> expired = new LinkedHashSet<>();
+    private long currentTime;
+
+    public TimingWheel(long tickMillis, int size, long startMillis) {
+        this.currentTime = startMillis - startMillis % tickMillis;
+        this.root = new Level(tickMillis, size);
+    }
+
+    public void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        Entry<K> entry = new Entry<>(key, deadlineMillis);
+        entries.put(key, entry);
+        if (!root.add(entry)) {
+            expire(entry);
+        }
+    }
+
+    public boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return expired.remove(key);
+        }
+        entry.unlink();
+        return true;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Продвигает часы до nowMillis и возвращает ключи, срок которых наступил, в том числе поставленные
+     * с уже прошедшим сроком.
+     */
+    public List<K> advance(long nowMillis) {
+        while (currentTime + root.tick <= nowMillis) {
+            currentTime += root.tick;
+            root.expireUpTo(currentTime);
+        }
+        List<K> result = new ArrayList<>(expired);
+        expired.clear();
+        return result;
+    }
+
+    private void expire(Entry<K> entry) {
+        entries.remove(entry.key);
+        expired.add(entry.key);
+    }
+
+    private final class Level {
+        private final long tick;
+        private final long interval;
+        private final Entry<K>[] buckets;
+        private Level overflow;
+
+        @SuppressWarnings("unchecked")
+        Level(long tick, int size) {
+            this.tick = tick;
+            this.interval = tick * size;
+            this.buckets = new Entry[size];
+            for (int i = 0; i < size; i++) {
+                buckets[i] = Entry.sentinel();
+            }
+        }
+
+        // false, если срок наступает в текущем тике и запись уже просрочена
+        boolean add(Entry<K> entry) {
+            long levelTime = currentTime - currentTime % tick;
+            if (entry.deadline < levelTime + tick) {
+                return false;
+            }
+            if (entry.deadline < levelTime + interval) {
+                buckets[(int) ((entry.deadline / tick) % buckets.length)].append(entry);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, buckets.length);
+            }
+            return overflow.add(entry);
+        }
+
+        // ячейки верхних уровней пересыпаются до нижнего, чтобы их записи встали на свои места
+        void expireUpTo(long time) {
+            if (overflow != null && time % interval == 0) {
+                overflow.expireUpTo(time);
+            }
+            Entry<K> bucket = buckets[(int) ((time / tick) % buckets.length)];
+            for (Entry<K> entry = bucket.next; entry != bucket; entry = bucket.next) {
+                entry.unlink();
+                if (!root.add(entry)) {
+                    expire(entry);
+                }
+            }
+        }
+    }
+
+    private static final class Entry<K> {
+        private final K key;
+        private final long deadline;
+        private Entry<K> prev;
+        private Entry<K> next;
+
+        Entry(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+
+        static <K> Entry<K> sentinel() {
+            Entry<K> sentinel = new Entry<>(null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        void append(Entry<K> entry) {
+            entry.prev = prev;
+            entry.next = this;
+            prev.next = entry;
+            prev = entry;
+        }
+
+        void unlink() {
+            if (next != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+-- Схема на момент перехода на Flyway. Все команды идемпотентны: существующие БД, созданные schema.sql,
+-- проходят эту миграцию без изменений (baseline-on-migrate с версией 0).
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS request_suggestions_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users (
+id bigint DEFAULT nextval('users_seq') NOT NULL,
+name varchar(255)   NOT NULL,
+email varchar(255)   NOT NULL,
+deleted boolean DEFAULT FALSE NOT NULL,
+CONSTRAINT pk_users PRIMARY KEY (id),
+CONSTRAINT uc_users_email UNIQUE (email)
+ );
+
+CREATE TABLE IF NOT EXISTS requests (
+id bigint DEFAULT nextval('requests_seq') NOT NULL,
+description varchar(512) NOT NULL,
+requester_id bigint   NOT null REFERENCES users(id) ON DELETE CASCADE,
+created timestamp NOT NULL,
+CONSTRAINT pk_requests PRIMARY KEY (id)
+    );
+
+
+CREATE TABLE IF NOT EXISTS items (
+id bigint DEFAULT nextval('items_seq') NOT NULL,
+name varchar(255)   NOT NULL,
+description varchar(512)   NOT NULL,
+available boolean   NOT NULL,
+owner_id bigint   NOT null REFERENCES users(id) ON DELETE CASCADE,
+request_id bigint REFERENCES requests(id) ,
+CONSTRAINT pk_items PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS bookings (
+id bigint DEFAULT nextval('bookings_seq') NOT NULL,
+start_date timestamp WITHOUT TIME ZONE NOT NULL,
+end_date timestamp WITHOUT TIME ZONE NOT NULL,
+booker_id bigint   NOT null REFERENCES users(id) ON DELETE CASCADE,
+item_id bigint   NOT null REFERENCES items(id) ON DELETE CASCADE,
+status varchar(20)   NOT NULL,
+CONSTRAINT pk_bookings PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS comments (
+id bigint DEFAULT nextval('comments_seq') NOT NULL,
+text varchar(512)   NOT NULL,
+author_id bigint   NOT null REFERENCES users(id) ON DELETE CASCADE,
+item_id bigint   NOT null REFERENCES items(id) ON DELETE CASCADE,
+created timestamp   NOT NULL,
+CONSTRAINT pk_comments PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS request_suggestions (
+id bigint DEFAULT nextval('request_suggestions_seq') NOT NULL,
+request_id bigint   NOT null REFERENCES requests(id) ON DELETE CASCADE,
+item_id bigint   NOT null REFERENCES items(id) ON DELETE CASCADE,
+created timestamp   NOT NULL,
+CONSTRAINT pk_request_suggestions PRIMARY KEY (id),
+CONSTRAINT uc_request_suggestions UNIQUE (request_id, item_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_item_end ON bookings (booker_id, item_id, end_date);
+CREATE INDEX IF NOT EXISTS idx_request_suggestions_item ON request_suggestions (item_id);
+CREATE INDEX IF NOT EXISTS idx_requests_created_id ON requests (created DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_items_request ON items (request_id);
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS deleted boolean DEFAULT FALSE NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_users_deleted ON users (deleted);
+CREATE INDEX IF NOT EXISTS idx_items_owner ON items (owner_id);
+CREATE INDEX IF NOT EXISTS idx_requests_requester ON requests (requester_id);
+CREATE INDEX IF NOT EXISTS idx_bookings_item ON bookings (item_id);
+CREATE INDEX IF NOT EXISTS idx_comments_author ON comments (author_id);
+CREATE INDEX IF NOT EXISTS idx_comments_item ON comments (item_id);
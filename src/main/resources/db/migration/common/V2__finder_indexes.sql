@@ -0,0 +1,20 @@
+-- Индексы под finder'ы репозиториев. Порядок колонок: равенства, затем колонка сортировки или диапазона.
+-- Покрываемые запросы перечислены в SchemaIndexTest, который проверяет планы на большом наборе данных.
+
+-- бронирования пользователя: все/текущие/прошлые/будущие по start_date DESC и по статусу
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (booker_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_status_start ON bookings (booker_id, status, start_date DESC);
+-- бронирования вещей владельца, последнее и следующее бронирование вещи
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_start ON bookings (item_id, status, start_date);
+-- вещи владельца в порядке id
+CREATE INDEX IF NOT EXISTS idx_items_owner_id ON items (owner_id, id);
+-- свои запросы пользователя, новые первыми
+CREATE INDEX IF NOT EXISTS idx_requests_requester_created ON requests (requester_id, created DESC, id DESC);
+-- страницы пользователей после id и выгрузка: @Where(deleted = false) плюс порядок по id
+CREATE INDEX IF NOT EXISTS idx_users_deleted_id ON users (deleted, id);
+
+-- поглощены индексами выше
+DROP INDEX IF EXISTS idx_bookings_item;
+DROP INDEX IF EXISTS idx_items_owner;
+DROP INDEX IF EXISTS idx_requests_requester;
+DROP INDEX IF EXISTS idx_users_deleted;
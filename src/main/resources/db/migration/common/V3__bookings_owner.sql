@@ -0,0 +1,13 @@
+-- Владелец вещи дублируется в бронировании, чтобы списки бронирований владельца читались одним индексом
+-- без соединения с items. Составной внешний ключ на items (id, owner_id) с ON UPDATE CASCADE сам переносит
+-- смену владельца вещи в ее бронирования.
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS owner_id bigint;
+UPDATE bookings b SET owner_id = (SELECT i.owner_id FROM items i WHERE i.id = b.item_id) WHERE owner_id IS NULL;
+ALTER TABLE bookings ALTER COLUMN owner_id SET NOT NULL;
+
+ALTER TABLE items ADD CONSTRAINT uc_items_id_owner UNIQUE (id, owner_id);
+ALTER TABLE bookings ADD CONSTRAINT fk_bookings_item_owner FOREIGN KEY (item_id, owner_id)
+    REFERENCES items (id, owner_id) ON UPDATE CASCADE ON DELETE CASCADE;
+
+CREATE INDEX IF NOT EXISTS idx_bookings_owner_start ON bookings (owner_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_owner_status_start ON bookings (owner_id, status, start_date);
@@ -0,0 +1,18 @@
+-- Холодный архив бронирований, закончившихся раньше горизонта shareit.bookings.archive.horizon.
+-- Строки переносит BookingArchiver, списки PAST и ALL читают архив, только когда страница до него доходит.
+CREATE TABLE IF NOT EXISTS bookings_archive (
+id bigint NOT NULL,
+start_date timestamp WITHOUT TIME ZONE NOT NULL,
+end_date timestamp WITHOUT TIME ZONE NOT NULL,
+booker_id bigint   NOT null REFERENCES users(id) ON DELETE CASCADE,
+item_id bigint   NOT NULL,
+owner_id bigint   NOT NULL,
+status varchar(20)   NOT NULL,
+CONSTRAINT pk_bookings_archive PRIMARY KEY (id),
+CONSTRAINT fk_bookings_archive_item_owner FOREIGN KEY (item_id, owner_id)
+    REFERENCES items (id, owner_id) ON UPDATE CASCADE ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_booker_start ON bookings_archive (booker_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_owner_start ON bookings_archive (owner_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_archive_item_booker ON bookings_archive (item_id, booker_id);
@@ -0,0 +1,6 @@
+-- Время создания бронирования, от него отсчитывается срок подтверждения shareit.bookings.approval.timeout.
+-- Существующим бронированиям срок отсчитывается с момента миграции.
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS created timestamp WITHOUT TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+ALTER TABLE bookings_archive ADD COLUMN IF NOT EXISTS created timestamp WITHOUT TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_bookings_status_created ON bookings (status, created);
@@ -0,0 +1,15 @@
+-- Очередь ожидания на занятые даты вещи. Порядок в очереди — по времени постановки.
+CREATE SEQUENCE IF NOT EXISTS waitlist_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS waitlist (
+id bigint DEFAULT nextval('waitlist_seq') NOT NULL,
+item_id bigint   NOT null REFERENCES items(id) ON DELETE CASCADE,
+booker_id bigint   NOT null REFERENCES users(id) ON DELETE CASCADE,
+start_date timestamp WITHOUT TIME ZONE NOT NULL,
+end_date timestamp WITHOUT TIME ZONE NOT NULL,
+created timestamp WITHOUT TIME ZONE NOT NULL,
+CONSTRAINT pk_waitlist PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_waitlist_item_created ON waitlist (item_id, created, id);
+CREATE INDEX IF NOT EXISTS idx_waitlist_booker_created ON waitlist (booker_id, created);
@@ -0,0 +1,22 @@
+-- Модель чтения для списков бронирований: все поля ответа в одной строке, без соединений с items и users.
+-- Пишется в той же транзакции, что и bookings; архивированные бронирования из нее удаляются.
+CREATE TABLE IF NOT EXISTS booking_view (
+id bigint NOT NULL,
+start_date timestamp WITHOUT TIME ZONE NOT NULL,
+end_date timestamp WITHOUT TIME ZONE NOT NULL,
+status varchar(20)   NOT NULL,
+item_id bigint   NOT null REFERENCES items(id) ON DELETE CASCADE,
+item_name varchar(255)   NOT NULL,
+booker_id bigint   NOT null REFERENCES users(id) ON DELETE CASCADE,
+owner_id bigint   NOT NULL,
+CONSTRAINT pk_booking_view PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_view_booker_start ON booking_view (booker_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_booker_status_start ON booking_view (booker_id, status, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_owner_start ON booking_view (owner_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_owner_status_start ON booking_view (owner_id, status, start_date DESC);
+
+INSERT INTO booking_view (id, start_date, end_date, status, item_id, item_name, booker_id, owner_id)
+SELECT b.id, b.start_date, b.end_date, b.status, b.item_id, i.name, b.booker_id, b.owner_id
+FROM bookings b JOIN items i ON i.id = b.item_id;
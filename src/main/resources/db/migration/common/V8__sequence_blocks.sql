@@ -0,0 +1,11 @@
+-- Блок идентификаторов pooled-lo больше пакета вставки Hibernate (hibernate.jdbc.batch_size = 50),
+-- чтобы выборка из последовательности не удваивала число обращений при массовой вставке.
+-- Шаг должен совпадать с allocationSize сущностей. users_seq остается с шагом 50: импорт пользователей
+-- вставляет строки мимо Hibernate и каждая такая строка забирает целый блок, а UserExistenceIndex
+-- хранит идентификаторы пользователей в битовой карте.
+ALTER SEQUENCE requests_seq INCREMENT BY 500;
+ALTER SEQUENCE items_seq INCREMENT BY 500;
+ALTER SEQUENCE bookings_seq INCREMENT BY 500;
+ALTER SEQUENCE comments_seq INCREMENT BY 500;
+ALTER SEQUENCE request_suggestions_seq INCREMENT BY 500;
+ALTER SEQUENCE waitlist_seq INCREMENT BY 500;
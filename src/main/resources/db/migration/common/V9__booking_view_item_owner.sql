@@ -0,0 +1,9 @@
+-- Владелец в модели чтения держится тем же составным внешним ключом, что и в bookings и bookings_archive:
+-- смена владельца вещи переносится в booking_view каскадом, а строка с чужим владельцем не вставится.
+ALTER TABLE booking_view ADD CONSTRAINT fk_booking_view_item_owner FOREIGN KEY (item_id, owner_id)
+    REFERENCES items (id, owner_id) ON UPDATE CASCADE ON DELETE CASCADE;
+
+-- Списки по статусу читаются из booking_view, в bookings по владельцу и бронирующему остались только
+-- запросы с архивом, которым хватает индексов (booker_id, start_date) и (owner_id, start_date)
+DROP INDEX IF EXISTS idx_bookings_booker_status_start;
+DROP INDEX IF EXISTS idx_bookings_owner_status_start;
@@ -0,0 +1,4 @@
+-- То же, что uc_users_email_key на PostgreSQL: в H2 нет индексов по выражению, поэтому
+-- нормализованный адрес хранится в вычисляемой колонке.
+ALTER TABLE users ADD COLUMN email_key varchar(255) GENERATED ALWAYS AS (LOWER(TRIM(email)));
+ALTER TABLE users ADD CONSTRAINT uc_users_email_key UNIQUE (email_key);
@@ -0,0 +1,32 @@
+-- Переход существующих таблиц с IDENTITY на последовательности из V1.
+-- Последовательность подтягивается к максимальному id, только если отстает от него, чтобы не задеть
+-- блоки идентификаторов, уже выданные работающим экземплярам.
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+SELECT setval('users_seq', m) FROM (SELECT MAX(id) AS m FROM users) t
+WHERE m >= (SELECT last_value FROM users_seq);
+
+ALTER TABLE requests ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE requests ALTER COLUMN id SET DEFAULT nextval('requests_seq');
+SELECT setval('requests_seq', m) FROM (SELECT MAX(id) AS m FROM requests) t
+WHERE m >= (SELECT last_value FROM requests_seq);
+
+ALTER TABLE items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE items ALTER COLUMN id SET DEFAULT nextval('items_seq');
+SELECT setval('items_seq', m) FROM (SELECT MAX(id) AS m FROM items) t
+WHERE m >= (SELECT last_value FROM items_seq);
+
+ALTER TABLE bookings ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE bookings ALTER COLUMN id SET DEFAULT nextval('bookings_seq');
+SELECT setval('bookings_seq', m) FROM (SELECT MAX(id) AS m FROM bookings) t
+WHERE m >= (SELECT last_value FROM bookings_seq);
+
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE comments ALTER COLUMN id SET DEFAULT nextval('comments_seq');
+SELECT setval('comments_seq', m) FROM (SELECT MAX(id) AS m FROM comments) t
+WHERE m >= (SELECT last_value FROM comments_seq);
+
+ALTER TABLE request_suggestions ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE request_suggestions ALTER COLUMN id SET DEFAULT nextval('request_suggestions_seq');
+SELECT setval('request_suggestions_seq', m) FROM (SELECT MAX(id) AS m FROM request_suggestions) t
+WHERE m >= (SELECT last_value FROM request_suggestions_seq);
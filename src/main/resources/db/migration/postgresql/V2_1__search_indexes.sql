@@ -0,0 +1,6 @@
+-- Поиск вещей ищет подстроку (LIKE '%text%'), для нее B-tree бесполезен, нужны триграммы.
+-- pg_trgm — доверенное расширение (PostgreSQL 13+), его может создать владелец БД.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_items_name_trgm ON items USING gin (LOWER(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_items_description_trgm ON items USING gin (LOWER(description) gin_trgm_ops);
+
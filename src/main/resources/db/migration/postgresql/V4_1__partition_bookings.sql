@@ -0,0 +1,47 @@
+-- bookings секционируется по end_date помесячно: секции bookings_pYYYYMM, строки вне них попадают
+-- в bookings_default. Секции на несколько месяцев вперед создает и старые переносит в архив BookingArchiver.
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования, поэтому он (id, end_date);
+-- уникальность id по-прежнему обеспечивает последовательность bookings_seq.
+ALTER TABLE bookings RENAME TO bookings_unpartitioned;
+ALTER TABLE bookings_unpartitioned RENAME CONSTRAINT pk_bookings TO pk_bookings_unpartitioned;
+
+CREATE TABLE bookings (
+id bigint DEFAULT nextval('bookings_seq') NOT NULL,
+start_date timestamp WITHOUT TIME ZONE NOT NULL,
+end_date timestamp WITHOUT TIME ZONE NOT NULL,
+booker_id bigint   NOT null REFERENCES users(id) ON DELETE CASCADE,
+item_id bigint   NOT NULL,
+owner_id bigint   NOT NULL,
+status varchar(20)   NOT NULL,
+CONSTRAINT pk_bookings PRIMARY KEY (id, end_date),
+CONSTRAINT fk_bookings_item_owner FOREIGN KEY (item_id, owner_id)
+    REFERENCES items (id, owner_id) ON UPDATE CASCADE ON DELETE CASCADE
+) PARTITION BY RANGE (end_date);
+
+CREATE TABLE bookings_default PARTITION OF bookings DEFAULT;
+
+DO $$
+DECLARE
+    month timestamp;
+BEGIN
+    FOR month IN SELECT generate_series(
+            date_trunc('month', LEAST(COALESCE(MIN(end_date), now()), now())),
+            date_trunc('month', now()) + interval '3 months', interval '1 month')
+        FROM bookings_unpartitioned
+    LOOP
+        EXECUTE format('CREATE TABLE bookings_p%s PARTITION OF bookings FOR VALUES FROM (%L) TO (%L)',
+                to_char(month, 'YYYYMM'), month, month + interval '1 month');
+    END LOOP;
+END $$;
+
+INSERT INTO bookings (id, start_date, end_date, booker_id, item_id, owner_id, status)
+SELECT id, start_date, end_date, booker_id, item_id, owner_id, status FROM bookings_unpartitioned;
+
+DROP TABLE bookings_unpartitioned;
+
+CREATE INDEX idx_bookings_booker_item_end ON bookings (booker_id, item_id, end_date);
+CREATE INDEX idx_bookings_booker_start ON bookings (booker_id, start_date DESC);
+CREATE INDEX idx_bookings_booker_status_start ON bookings (booker_id, status, start_date DESC);
+CREATE INDEX idx_bookings_item_status_start ON bookings (item_id, status, start_date);
+CREATE INDEX idx_bookings_owner_start ON bookings (owner_id, start_date DESC);
+CREATE INDEX idx_bookings_owner_status_start ON bookings (owner_id, status, start_date);
@@ -0,0 +1,35 @@
+-- Подтвержденные бронирования одной вещи не пересекаются, даже если их подтверждают разные экземпляры
+-- приложения. Ограничение исключения на секционированной bookings обязано включать ключ секционирования
+-- end_date через равенство, поэтому периоды подтвержденных бронирований ведет триггер в отдельной таблице.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+CREATE TABLE IF NOT EXISTS approved_periods (
+booking_id bigint NOT NULL,
+item_id bigint NOT NULL,
+period tsrange NOT NULL,
+CONSTRAINT pk_approved_periods PRIMARY KEY (booking_id),
+CONSTRAINT ex_approved_periods_item_period EXCLUDE USING gist (item_id WITH =, period WITH &&)
+);
+
+CREATE OR REPLACE FUNCTION sync_approved_periods() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        DELETE FROM approved_periods WHERE booking_id = OLD.id;
+    END IF;
+    IF TG_OP <> 'DELETE' AND NEW.status = 'APPROVED' THEN
+        INSERT INTO approved_periods (booking_id, item_id, period)
+        VALUES (NEW.id, NEW.item_id, tsrange(NEW.start_date, NEW.end_date));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- перенос строки между секциями при смене end_date приходит как DELETE и INSERT
+CREATE TRIGGER trg_bookings_approved_periods
+AFTER INSERT OR DELETE OR UPDATE OF status, start_date, end_date, item_id ON bookings
+FOR EACH ROW EXECUTE FUNCTION sync_approved_periods();
+
+-- пересечения, созданные до проверки дат при бронировании, остаются как есть: защищается более раннее
+INSERT INTO approved_periods (booking_id, item_id, period)
+SELECT id, item_id, tsrange(start_date, end_date) FROM bookings WHERE status = 'APPROVED' ORDER BY id
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,3 @@
+-- UserEmailIndex сравнивает адреса без пробелов по краям и без учета регистра, а индекс у каждого узла свой;
+-- окончательно такие дубликаты отклоняет БД. Выражение совпадает с UserRepository.existsByEmailKeyAndIdNot.
+CREATE UNIQUE INDEX uc_users_email_key ON users (lower(trim(email)));
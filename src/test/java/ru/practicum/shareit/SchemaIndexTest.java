@@ -0,0 +1,359 @@
+package ru.practicum.shareit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingViewRepository;
+import ru.practicum.shareit.booking.repository.WaitlistRepository;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.repository.ItemRequestFeedRepository;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.repository.UserExportRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Планы запросов всех finder'ов репозиториев на большом наборе данных. SQL каждого finder'а перехватывается
+ * при вызове вместе с параметрами и выполняется заново под EXPLAIN. Тест падает, если план читает таблицу
+ * целиком (tableScan), кроме таблиц, которые finder по смыслу обязан прочитать полностью.
+ */
+@Slf4j
+@SpringBootTest(properties = "shareit.users.purge.enabled=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SchemaIndexTest {
+    private static final long BASE = 1_000_000_000L;
+    private static final int USERS = 2_000;
+    private static final int REQUESTS = 4_000;
+    private static final int ITEMS = 8_000;
+    private static final int BOOKINGS = 40_000;
+    private static final int COMMENTS = 8_000;
+    private static final long USER = BASE + 7;
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final PageRequest PAGE = PageRequest.of(0, 10);
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+)\\.tableScan");
+    private static final Pattern FULL_INDEX_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+) \\*/");
+    private static final List<Captured> CAPTURED = new ArrayList<>();
+    private static volatile boolean capturing;
+    private final Map<String, String> indexTables = new HashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingViewRepository bookingViewRepository;
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private RequestSuggestionRepository requestSuggestionRepository;
+    @Autowired
+    private ItemRequestFeedRepository itemRequestFeedRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserExportRepository userExportRepository;
+
+    @BeforeAll
+    void fill() {
+        String ts = "DATEADD('MINUTE', -X, TIMESTAMP '2026-01-01 00:00:00')";
+        jdbcTemplate.update("INSERT INTO users (id, name, email) " +
+                "SELECT ? + X, 'user' || X, 'user' || X || '@index.ru' FROM SYSTEM_RANGE(1, ?)", BASE, USERS);
+        jdbcTemplate.update("INSERT INTO requests (id, description, requester_id, created) " +
+                "SELECT ? + X, 'request ' || X, ? + 1 + MOD(X, ?), " + ts + " FROM SYSTEM_RANGE(1, ?)",
+                BASE, BASE, USERS, REQUESTS);
+        jdbcTemplate.update("INSERT INTO items (id, name, description, available, owner_id, request_id) " +
+                "SELECT ? + X, 'item ' || X, 'description ' || X, MOD(X, 3) > 0, ? + 1 + MOD(X, ?), " +
+                "CASEWHEN(X <= ?, ? + X, NULL) FROM SYSTEM_RANGE(1, ?)",
+                BASE, BASE, USERS, REQUESTS / 2, BASE, ITEMS);
+        jdbcTemplate.update("INSERT INTO bookings (id, start_date, end_date, booker_id, item_id, owner_id, status) " +
+                "SELECT ? + X, DATEADD('HOUR', X - ?, TIMESTAMP '2026-01-01 00:00:00'), " +
+                "DATEADD('HOUR', X - ? + 2, TIMESTAMP '2026-01-01 00:00:00'), ? + 1 + MOD(X, ?), " +
+                "i.id, i.owner_id, CASE MOD(X, 4) WHEN 0 THEN 'WAITING' WHEN 1 THEN 'APPROVED' " +
+                "WHEN 2 THEN 'REJECTED' ELSE 'CANCELED' END FROM SYSTEM_RANGE(1, ?) " +
+                "JOIN items i ON i.id = ? + 1 + MOD(X * 7, ?)",
+                BASE, BOOKINGS / 2, BOOKINGS / 2, BASE, USERS, BOOKINGS, BASE, ITEMS);
+        jdbcTemplate.update("INSERT INTO booking_view (id, start_date, end_date, status, item_id, item_name, " +
+                "booker_id, owner_id) SELECT b.id, b.start_date, b.end_date, b.status, b.item_id, i.name, b.booker_id, " +
+                "b.owner_id FROM bookings b JOIN items i ON i.id = b.item_id WHERE b.id > ?", BASE);
+        jdbcTemplate.update("INSERT INTO comments (id, text, author_id, item_id, created) " +
+                "SELECT ? + X, 'comment ' || X, ? + 1 + MOD(X, ?), ? + 1 + MOD(X, ?), " + ts +
+                " FROM SYSTEM_RANGE(1, ?)", BASE, BASE, USERS, BASE, ITEMS, COMMENTS);
+        jdbcTemplate.update("INSERT INTO request_suggestions (id, request_id, item_id, created) " +
+                "SELECT ? + X, ? + X, ? + ? + X, " + ts + " FROM SYSTEM_RANGE(1, ?)",
+                BASE, BASE, BASE, REQUESTS / 2, REQUESTS / 2);
+        jdbcTemplate.execute("ANALYZE");
+        jdbcTemplate.query("SELECT INDEX_NAME, TABLE_NAME FROM INFORMATION_SCHEMA.INDEXES " +
+                "WHERE TABLE_SCHEMA = 'PUBLIC'", rs -> {
+                    indexTables.put(rs.getString(1), rs.getString(2));
+                });
+    }
+
+    @AfterAll
+    void cleanUp() {
+        for (String table : List.of("request_suggestions", "comments", "booking_view", "bookings", "items", "requests", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE id > ?", BASE);
+        }
+    }
+
+    Stream<Arguments> finders() {
+        Consumer<UserDto> skip = user -> { };
+        return Stream.of(
+                finder("bookings.existsByBookerIdAndItemIdAndEndBefore",
+                        () -> bookingRepository.existsByBookerIdAndItemIdAndEndBefore(USER, BASE + 1, NOW)),
+                finder("bookings.findAllByItemInAndStatusOrderByStartAsc",
+                        () -> bookingRepository.findAllByItemInAndStatusOrderByStartAsc(
+                                itemRepository.findAllById(List.of(BASE + 1, BASE + 2, BASE + 3)),
+                                BookingStatus.APPROVED)),
+                finder("bookings.findFirstByItemIdAndStatusAndStartGreaterThanOrderByStart",
+                        () -> bookingRepository.findFirstByItemIdAndStatusAndStartGreaterThanOrderByStart(BASE + 1,
+                                BookingStatus.APPROVED, NOW)),
+                finder("bookings.findFirstByItemIdAndStatusAndStartLessThanEqualOrderByStartDesc",
+                        () -> bookingRepository.findFirstByItemIdAndStatusAndStartLessThanEqualOrderByStartDesc(
+                                BASE + 1, BookingStatus.APPROVED, NOW)),
+                finder("bookings.existsByItemIdAndStatusInAndStartBeforeAndEndAfter",
+                        () -> bookingRepository.existsByItemIdAndStatusInAndStartBeforeAndEndAfter(BASE + 1,
+                                List.of(BookingStatus.WAITING, BookingStatus.APPROVED), NOW.plusDays(1), NOW)),
+                finder("bookings.findArchivedById", () -> bookingRepository.findArchivedById(BASE + 1)),
+                finder("bookings.countArchivedByBookerIdAndItemId",
+                        () -> bookingRepository.countArchivedByBookerIdAndItemId(USER, BASE + 1)),
+                finder("bookings.findAllByBookerIdWithArchive",
+                        () -> bookingRepository.findAllByBookerIdWithArchive(USER, PAGE)),
+                finder("bookings.findAllByBookerIdAndEndBeforeWithArchive",
+                        () -> bookingRepository.findAllByBookerIdAndEndBeforeWithArchive(USER, NOW, PAGE)),
+                finder("bookings.findAllByOwnerIdWithArchive",
+                        () -> bookingRepository.findAllByOwnerIdWithArchive(USER, PAGE)),
+                finder("bookings.findAllByOwnerIdAndEndBeforeWithArchive",
+                        () -> bookingRepository.findAllByOwnerIdAndEndBeforeWithArchive(USER, NOW, PAGE)),
+                // индекс совместных бронирований при старте читает все подтвержденные пары
+                finder("bookings.findDistinctBookerItemPairs",
+                        () -> bookingRepository.findDistinctBookerItemPairs(BookingStatus.APPROVED.name()),
+                        "BOOKINGS", "BOOKINGS_ARCHIVE"),
+                // счетчики популярности заполняются при старте подтвержденными бронированиями окна
+                finder("bookings.findItemCreatedByStatusSince",
+                        () -> bookingRepository.findItemCreatedByStatusSince(BookingStatus.APPROVED, NOW.minusDays(7)),
+                        "BOOKINGS"),
+                finder("booking_view.findAllByBookerIdOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByBookerIdOrderByStartDesc(USER, PAGE)),
+                finder("booking_view.findAllByBookerIdAndStartAfterOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByBookerIdAndStartAfterOrderByStartDesc(USER, NOW, PAGE)),
+                finder("booking_view.findAllByBookerIdAndEndBeforeOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByBookerIdAndEndBeforeOrderByStartDesc(USER, NOW, PAGE)),
+                finder("booking_view.findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(USER,
+                                NOW, NOW, PAGE)),
+                finder("booking_view.findAllByBookerIdAndStatusOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByBookerIdAndStatusOrderByStartDesc(USER,
+                                BookingStatus.WAITING, PAGE)),
+                finder("booking_view.findAllByOwnerIdOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByOwnerIdOrderByStartDesc(USER, PAGE)),
+                finder("booking_view.findAllByOwnerIdAndStartAfterOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByOwnerIdAndStartAfterOrderByStartDesc(USER, NOW, PAGE)),
+                finder("booking_view.findAllByOwnerIdAndEndBeforeOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByOwnerIdAndEndBeforeOrderByStartDesc(USER, NOW, PAGE)),
+                finder("booking_view.findAllByOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(USER,
+                                NOW, NOW, PAGE)),
+                finder("booking_view.findAllByOwnerIdAndStatusOrderByStartDesc",
+                        () -> bookingViewRepository.findAllByOwnerIdAndStatusOrderByStartDesc(USER,
+                                BookingStatus.WAITING, PAGE)),
+                finder("waitlist.findAllByBookerIdOrderByCreated",
+                        () -> waitlistRepository.findAllByBookerIdOrderByCreated(USER)),
+                finder("waitlist.findAllByItemIdOrderByCreatedAscIdAsc",
+                        () -> waitlistRepository.findAllByItemIdOrderByCreatedAscIdAsc(BASE + 1)),
+                finder("waitlist.countByItemId", () -> waitlistRepository.countByItemId(BASE + 1)),
+                finder("comments.findAllByItemId", () -> commentRepository.findAllByItemId(BASE + 1)),
+                finder("items.findAllByOwnerIdOrderById", () -> itemRepository.findAllByOwnerIdOrderById(USER, PAGE)),
+                // поиск подстроки: на PostgreSQL его обслуживают триграммные индексы, в H2 их нет
+                finder("items.search", () -> itemRepository.search("item 12", PAGE), "ITEMS"),
+                finder("items.findAllByRequestInOrderByRequestId",
+                        () -> itemRepository.findAllByRequestInOrderByRequestId(
+                                itemRequestRepository.findAllById(List.of(BASE + 1, BASE + 2)))),
+                // открытые запросы загружаются в OpenRequestIndex целиком при старте
+                finder("requests.findAllOpen", () -> itemRequestRepository.findAllOpen(), "REQUESTS"),
+                // перед подбором запросов для новой вещи дочитываются запросы, созданные другими узлами
+                finder("requests.findAllOpenCreatedAfter",
+                        () -> itemRequestRepository.findAllOpenCreatedAfter(NOW.minusDays(1))),
+                finder("suggestions.findAllByRequestIdIn",
+                        () -> requestSuggestionRepository.findAllByRequestIdIn(List.of(BASE + 1, BASE + 2))),
+                finder("feed.findAllByRequesterId", () -> itemRequestFeedRepository.findAllByRequesterId(USER)),
+                finder("feed.findAllByRequesterIdIsNot",
+                        () -> itemRequestFeedRepository.findAllByRequesterIdIsNot(USER, 0, 10)),
+                finder("feed.findAllByRequesterIdIsNotBefore",
+                        () -> itemRequestFeedRepository.findAllByRequesterIdIsNotBefore(USER, NOW.minusDays(1),
+                                BASE + REQUESTS, 10)),
+                finder("feed.findNewest", () -> itemRequestFeedRepository.findNewest(10)),
+                finder("users.findAllByIdGreaterThanOrderById",
+                        () -> userRepository.findAllByIdGreaterThanOrderById(USER, PAGE)),
+                // выгрузка и загрузка индексов пользователей читают таблицу целиком
+                finder("users.export.forEach", () -> userExportRepository.forEach(skip), "USERS"),
+                finder("users.export.forEachDeletedId", () -> userExportRepository.forEachDeletedId(id -> { })));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("finders")
+    void finderUsesIndexes(String name, Runnable finder, Set<String> fullScans) throws Exception {
+        CAPTURED.clear();
+        capturing = true;
+        try {
+            finder.run();
+        } finally {
+            capturing = false;
+        }
+        assertFalse(CAPTURED.isEmpty(), name + " не выполнил ни одного запроса");
+        for (Captured query : CAPTURED) {
+            String plan = explain(query);
+            log.info("{}: {}", name, plan);
+            for (String table : scannedTables(plan)) {
+                assertTrue(fullScans.contains(table), name + " читает таблицу " + table + " целиком:\n" + plan);
+            }
+        }
+    }
+
+    // tableScan или индекс без условия; индекс без условия допустим только для первых N строк в его порядке
+    private Set<String> scannedTables(String plan) {
+        Set<String> tables = new HashSet<>();
+        Matcher scan = TABLE_SCAN.matcher(plan);
+        while (scan.find()) {
+            tables.add(scan.group(1));
+        }
+        boolean topN = plan.contains("/* index sorted */") && plan.contains("FETCH FIRST");
+        Matcher indexScan = FULL_INDEX_SCAN.matcher(plan);
+        while (indexScan.find() && !topN) {
+            tables.add(indexTables.get(indexScan.group(1)));
+        }
+        return tables;
+    }
+
+    private static Arguments finder(String name, Runnable finder, String... fullScans) {
+        return arguments(name, finder, Set.of(fullScans));
+    }
+
+    private String explain(Captured query) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query.sql)) {
+            for (Object[] setter : query.parameters) {
+                ((Method) setter[0]).invoke(statement, (Object[]) setter[1]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (rs.next()) {
+                    plan.append(rs.getString(1));
+                }
+                return plan.toString();
+            }
+        }
+    }
+
+    private static class Captured {
+        private final String sql;
+        private final List<Object[]> parameters = new ArrayList<>();
+
+        Captured(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    @TestConfiguration
+    static class QueryCapture {
+
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    return proxy(DataSource.class, bean, null);
+                }
+            };
+        }
+
+        private static <T> T proxy(Class<T> type, Object target, Captured captured) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (captured != null && name.startsWith("set") && args != null && args.length >= 2
+                                && args[0] instanceof Integer) {
+                            captured.parameters.add(new Object[]{method, args});
+                        }
+                        if (name.startsWith("execute")) {
+                            String sql = args != null && args.length > 0 && args[0] instanceof String
+                                    ? (String) args[0] : captured != null ? captured.sql : null;
+                            capture(sql, args != null && args.length > 0 ? null : captured);
+                        }
+                        Object result;
+                        try {
+                            result = method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (result instanceof Connection) {
+                            return proxy(Connection.class, result, null);
+                        }
+                        if (result instanceof PreparedStatement) {
+                            return proxy(PreparedStatement.class, result, new Captured((String) args[0]));
+                        }
+                        if (result instanceof Statement) {
+                            return proxy(Statement.class, result, null);
+                        }
+                        return result;
+                    }));
+        }
+
+        private static void capture(String sql, Captured captured) throws SQLException {
+            if (!capturing || sql == null || !sql.trim().toLowerCase().startsWith("select")) {
+                return;
+            }
+            CAPTURED.add(captured != null ? captured : new Captured(sql));
+        }
+    }
+}
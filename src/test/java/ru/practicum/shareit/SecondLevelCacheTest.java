@@ -0,0 +1,85 @@
+package ru.practicum.shareit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.exception.EntityNotFoundException;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.dto.ItemDtoResponse;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserPurger;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// кеш второго уровня заполняется только после коммита, поэтому тест не транзакционный
+@SpringBootTest(properties = "shareit.users.purge.enabled=false")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class SecondLevelCacheTest {
+    private final UserService userService;
+    private final ItemService itemService;
+    private final UserPurger userPurger;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@cache.ru'");
+        userPurger.purgeDeleted();
+    }
+
+    @Test
+    void shouldNotServeStaleUserAfterUpdate() {
+        UserDto user = userService.create(UserDto.builder().name("Nik").email("nik@cache.ru").build());
+        userService.getUser(user.getId());
+        long hits = region("users").getHitCount();
+
+        assertEquals("Nik", userService.getUser(user.getId()).getName());
+        assertTrue(region("users").getHitCount() > hits);
+
+        userService.update(UserDto.builder().name("Nikolay").email("nikolay@cache.ru").build(), user.getId());
+
+        UserDto updated = userService.getUser(user.getId());
+        assertEquals("Nikolay", updated.getName());
+        assertEquals("nikolay@cache.ru", updated.getEmail());
+
+        userService.deleteUserById(user.getId());
+        assertThrows(EntityNotFoundException.class, () -> userService.getUser(user.getId()));
+    }
+
+    @Test
+    void shouldNotServeStaleItemAfterUpdate() {
+        UserDto owner = userService.create(UserDto.builder().name("Owner").email("owner@cache.ru").build());
+        ItemDtoResponse item = itemService.create(ItemDtoRequest.builder().name("drill").description("old drill")
+                .available(true).build(), owner.getId());
+        itemService.getItem(item.getId(), owner.getId());
+        assertEquals("drill", itemService.getAllUserItems(owner.getId(), 0, 10).get(0).getName());
+
+        itemService.update(owner.getId(), item.getId(), ItemDtoRequest.builder().description("new drill")
+                .available(false).build());
+
+        ItemDtoResponse updated = itemService.getItem(item.getId(), owner.getId());
+        assertEquals("new drill", updated.getDescription());
+        assertFalse(updated.getAvailable());
+        assertEquals("new drill", itemService.getAllUserItems(owner.getId(), 0, 10).get(0).getDescription());
+        assertTrue(meterRegistry.get("hibernate.second.level.cache.requests")
+                .tag("region", "items").tag("result", "hit").functionCounter().count() > 0);
+    }
+
+    private CacheRegionStatistics region(String name) {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics().getDomainDataRegionStatistics(name);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.dto.WaitlistDto;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.exception.EntityNotFoundException;
@@ -319,4 +320,56 @@ class BookingControllerTest {
 
         Mockito.verifyNoInteractions(bookingService);
     }
+
+    @Test
+    void shouldCancelBooking() throws Exception {
+        when(bookingService.cancel(bookingId, bookerId))
+                .thenReturn(response);
+
+        mvc.perform(patch("/bookings/" + bookingId + "/cancel")
+                        .header("X-Sharer-User-Id", bookerId)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(response.getId()), Long.class));
+
+        Mockito.verify(bookingService, Mockito.times(1))
+                .cancel(bookingId, bookerId);
+        Mockito.verifyNoMoreInteractions(bookingService);
+    }
+
+    @Test
+    void shouldJoinAndLeaveWaitlist() throws Exception {
+        LocalDateTime waitStart = LocalDateTime.now().plusDays(1).withNano(0);
+        BookingDtoRequest waitRequest = BookingDtoRequest.builder().start(waitStart)
+                .end(waitStart.plusDays(1)).itemId(itemId).build();
+        WaitlistDto entry = WaitlistDto.builder().id(7L).itemId(itemId).start(waitRequest.getStart())
+                .end(waitRequest.getEnd()).build();
+        when(bookingService.joinWaitlist(waitRequest, bookerId))
+                .thenReturn(entry);
+        when(bookingService.findWaitlist(bookerId))
+                .thenReturn(List.of(entry));
+
+        mvc.perform(post("/bookings/waitlist")
+                        .content(mapper.writeValueAsString(waitRequest))
+                        .header("X-Sharer-User-Id", bookerId)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(entry.getId()), Long.class))
+                .andExpect(jsonPath("$.itemId", is(itemId), Long.class));
+
+        mvc.perform(get("/bookings/waitlist")
+                        .header("X-Sharer-User-Id", bookerId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        mvc.perform(delete("/bookings/waitlist/" + entry.getId())
+                        .header("X-Sharer-User-Id", bookerId))
+                .andExpect(status().isOk());
+
+        Mockito.verify(bookingService).leaveWaitlist(entry.getId(), bookerId);
+    }
 }
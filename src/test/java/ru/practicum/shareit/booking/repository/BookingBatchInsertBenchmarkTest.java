@@ -0,0 +1,167 @@
+package ru.practicum.shareit.booking.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Число обращений к БД при массовой вставке бронирований: построчные INSERT, к которым вынуждал IDENTITY,
+ * против пакетной вставки Hibernate с идентификаторами из последовательности (pooled-lo).
+ * Запуск: mvn test -Pbenchmark -Dtest=BookingBatchInsertBenchmarkTest -Dshareit.benchmark.bookings=100000
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = "shareit.users.purge.enabled=false")
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookingBatchInsertBenchmarkTest {
+    private static final int CHUNK = 1_000;
+    private static final AtomicLong EXECUTES = new AtomicLong();
+    private static final AtomicLong BATCHES = new AtomicLong();
+
+    private final int total = Integer.getInteger("shareit.benchmark.bookings", 100_000);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    private long ownerId;
+    private long bookerId;
+    private long itemId;
+
+    @BeforeAll
+    void fill() {
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('owner', 'owner@batch.ru')");
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('booker', 'booker@batch.ru')");
+        ownerId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'owner@batch.ru'", Long.class);
+        bookerId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'booker@batch.ru'", Long.class);
+        jdbcTemplate.update("INSERT INTO items (name, description, available, owner_id) VALUES ('drill', 'drill', TRUE, ?)",
+                ownerId);
+        itemId = jdbcTemplate.queryForObject("SELECT id FROM items WHERE owner_id = ?", Long.class, ownerId);
+    }
+
+    @Test
+    void batchedInsertsNeedFractionOfRoundTrips() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+
+        reset();
+        long started = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, booker_id, item_id, owner_id, status) " +
+                    "VALUES (?, ?, ?, ?, ?, 'WAITING')", Timestamp.valueOf(start.plusMinutes(i)),
+                    Timestamp.valueOf(start.plusMinutes(i + 1)), bookerId, itemId, ownerId);
+        }
+        long rowNanos = System.nanoTime() - started;
+        long rowTrips = EXECUTES.get() + BATCHES.get();
+
+        reset();
+        started = System.nanoTime();
+        for (int from = 0; from < total; from += CHUNK) {
+            int first = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                User booker = entityManager.getReference(User.class, bookerId);
+                Item item = entityManager.getReference(Item.class, itemId);
+                List<Booking> bookings = new ArrayList<>(CHUNK);
+                for (int i = first; i < Math.min(total, first + CHUNK); i++) {
+                    bookings.add(Booking.builder().start(start.plusMinutes(i)).end(start.plusMinutes(i + 1))
+                            .created(start).booker(booker).item(item).ownerId(ownerId).status(BookingStatus.WAITING)
+                            .build());
+                }
+                bookingRepository.saveAll(bookings);
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+        long batchNanos = System.nanoTime() - started;
+        long sequenceTrips = EXECUTES.get();
+        long batchTrips = BATCHES.get();
+
+        log.info("Benchmark: bookings={} row-by-row: {} round trips, {} ms; batched: {} round trips " +
+                        "({} batches + {} sequence/other), {} ms, ratio 1/{}", total, rowTrips, rowNanos / 1_000_000,
+                sequenceTrips + batchTrips, batchTrips, sequenceTrips, batchNanos / 1_000_000,
+                rowTrips / Math.max(1, sequenceTrips + batchTrips));
+        assertEquals(2L * total, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings", Long.class));
+        assertTrue(batchTrips <= total / 50 + total / CHUNK);
+        assertTrue(sequenceTrips + batchTrips <= rowTrips / 40);
+    }
+
+    private static void reset() {
+        EXECUTES.set(0);
+        BATCHES.set(0);
+    }
+
+    @TestConfiguration
+    static class RoundTripCounter {
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    return proxy(DataSource.class, bean);
+                }
+            };
+        }
+
+        private static <T> T proxy(Class<T> type, Object target) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                            BATCHES.incrementAndGet();
+                        } else if (name.startsWith("execute")) {
+                            EXECUTES.incrementAndGet();
+                        }
+                        Object result;
+                        try {
+                            result = method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (result instanceof Connection) {
+                            return proxy(Connection.class, result);
+                        }
+                        if (result instanceof Statement && method.getReturnType().isInterface()) {
+                            return proxy(method.getReturnType(), result);
+                        }
+                        return result;
+                    }));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.shareit.booking.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.model.Booking;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Списки бронирований владельца: соединение bookings с items по items.owner_id против bookings.owner_id.
+ * Статусные списки читаются из booking_view, по bookings.owner_id идут только запросы с архивом.
+ * Запуск: mvn test -Pbenchmark -Dtest=BookingOwnerListingBenchmarkTest -Dshareit.benchmark.bookings=1000000
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {"shareit.users.purge.enabled=false", "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework.transaction=WARN", "logging.level.org.springframework.orm.jpa=WARN"})
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookingOwnerListingBenchmarkTest {
+    private static final long BASE = 2_000_000_000L;
+    private static final int OWNERS = 200;
+    private static final int ITEMS_PER_OWNER = 20;
+    private static final int PAGE_SIZE = 20;
+    private static final int ROUNDS = 50;
+    private static final long OWNER = BASE + 1;
+    private static final String JOINED = "SELECT b FROM Booking b JOIN b.item i WHERE i.owner.id = :owner ";
+    private static final String OWNER_ID = "SELECT b FROM Booking b WHERE b.ownerId = :owner ";
+
+    private final int total = Integer.getInteger("shareit.benchmark.bookings", 200_000);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeAll
+    void fill() {
+        jdbcTemplate.update("INSERT INTO users (id, name, email) " +
+                "SELECT ? + X, 'owner' || X, 'owner' || X || '@listing.ru' FROM SYSTEM_RANGE(1, ?)", BASE, OWNERS + 1);
+        jdbcTemplate.update("INSERT INTO items (id, name, description, available, owner_id) " +
+                "SELECT ? + X, 'item', 'item', TRUE, ? + 1 + MOD(X, ?) FROM SYSTEM_RANGE(1, ?)",
+                BASE, BASE, OWNERS, OWNERS * ITEMS_PER_OWNER);
+        jdbcTemplate.update("INSERT INTO bookings (id, start_date, end_date, booker_id, item_id, owner_id, status) " +
+                "SELECT ? + X, DATEADD('MINUTE', X, TIMESTAMP '2026-01-01 00:00:00'), " +
+                "DATEADD('MINUTE', X + 60, TIMESTAMP '2026-01-01 00:00:00'), ?, i.id, i.owner_id, " +
+                "CASEWHEN(MOD(X, 3) = 0, 'WAITING', 'APPROVED') FROM SYSTEM_RANGE(1, ?) " +
+                "JOIN items i ON i.id = ? + 1 + MOD(X, ?)",
+                BASE, BASE + OWNERS + 1, total, BASE, OWNERS * ITEMS_PER_OWNER);
+        jdbcTemplate.execute("ANALYZE");
+        log.info("Benchmark: вставлено {} бронирований", total);
+    }
+
+    @AfterAll
+    void cleanUp() {
+        for (String table : List.of("bookings", "items", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE id > ?", BASE);
+        }
+    }
+
+    @Test
+    void ownerListingsReadOwnerIdIndex() {
+        long joinedAll = measure(() -> page(JOINED + "ORDER BY b.start DESC"));
+        long ownerAll = measure(() -> page(OWNER_ID + "ORDER BY b.start DESC"));
+
+        log.info("Benchmark: bookings={} ALL join={} us owner_id={} us", total, joinedAll / 1000, ownerAll / 1000);
+        assertEquals(ids(page(JOINED + "ORDER BY b.start DESC")), ids(page(OWNER_ID + "ORDER BY b.start DESC")));
+    }
+
+    private List<Booking> page(String query) {
+        return entityManager.createQuery(query, Booking.class).setParameter("owner", OWNER)
+                .setMaxResults(PAGE_SIZE).getResultList();
+    }
+
+    private static List<Long> ids(List<Booking> bookings) {
+        return bookings.stream().map(Booking::getId).collect(Collectors.toList());
+    }
+
+    private long measure(Supplier<List<Booking>> query) {
+        assertEquals(PAGE_SIZE, query.get().size());
+        long started = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - started) / ROUNDS;
+    }
+}
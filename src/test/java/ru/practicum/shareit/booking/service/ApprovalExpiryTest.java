@@ -0,0 +1,103 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserPurger;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// отмена идет мимо транзакции теста, поэтому данные коммитятся и удаляются через UserPurger
+@SpringBootTest(properties = {
+        "shareit.users.purge.enabled=false",
+        "shareit.bookings.approval.enabled=false",
+        "shareit.bookings.approval.timeout=PT1M"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ApprovalExpiryTest {
+    private final ApprovalExpiry approvalExpiry;
+    private final BookingService bookingService;
+    private final UserService userService;
+    private final ItemService itemService;
+    private final UserPurger userPurger;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@expiry.ru'");
+        userPurger.purgeDeleted();
+    }
+
+    @Test
+    void shouldCancelUnansweredBookingsAfterTimeout() {
+        long owner = userService.create(UserDto.builder().name("Owner").email("owner@expiry.ru").build()).getId();
+        long booker = userService.create(UserDto.builder().name("Booker").email("booker@expiry.ru").build()).getId();
+        long item = itemService.create(ItemDtoRequest.builder().name("kayak").description("expiry kayak")
+                .available(true).build(), owner).getId();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        long unanswered = book(booker, item, start);
+        long approved = book(booker, item, start.plusDays(2));
+        bookingService.approve(approved, true, owner);
+
+        approvalExpiry.expire(System.currentTimeMillis());
+        assertEquals("WAITING", status(unanswered));
+
+        approvalExpiry.expire(System.currentTimeMillis() + 61_000);
+        assertEquals("CANCELED", status(unanswered));
+        assertEquals("APPROVED", status(approved));
+        assertEquals(BookingStatus.CANCELED, bookingService.getBooking(unanswered, booker).getStatus());
+        assertThrows(ValidationException.class, () -> bookingService.approve(unanswered, true, owner));
+    }
+
+    @Test
+    void shouldRehydrateWaitingBookingsAndRejectLateApproval() {
+        long owner = userService.create(UserDto.builder().name("Owner").email("owner2@expiry.ru").build()).getId();
+        long booker = userService.create(UserDto.builder().name("Booker").email("booker2@expiry.ru").build()).getId();
+        long item = itemService.create(ItemDtoRequest.builder().name("tent").description("expiry tent")
+                .available(true).build(), owner).getId();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        long overdue = insertWaiting(booker, item, now.minusHours(1));
+        long late = insertWaiting(booker, item, now.minusHours(2));
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> bookingService.approve(late, true, owner));
+        assertEquals("Срок подтверждения бронирования истек", exception.getMessage());
+
+        approvalExpiry.load();
+        approvalExpiry.expire(System.currentTimeMillis() + 1000);
+        assertEquals("CANCELED", status(overdue));
+        assertEquals("CANCELED", status(late));
+    }
+
+    private long book(long bookerId, long itemId, LocalDateTime start) {
+        return bookingService.create(BookingDtoRequest.builder().itemId(itemId).start(start)
+                .end(start.plusDays(1)).build(), bookerId).getId();
+    }
+
+    private long insertWaiting(long bookerId, long itemId, LocalDateTime created) {
+        LocalDateTime start = created.plusDays(3);
+        jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, booker_id, item_id, owner_id, status, " +
+                "created) SELECT ?, ?, ?, id, owner_id, 'WAITING', ? FROM items WHERE id = ?", Timestamp.valueOf(start),
+                Timestamp.valueOf(start.plusDays(1)), bookerId, Timestamp.valueOf(created), itemId);
+        return jdbcTemplate.queryForObject("SELECT id FROM bookings WHERE booker_id = ? AND created = ?",
+                Long.class, bookerId, Timestamp.valueOf(created));
+    }
+
+    private String status(long bookingId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM bookings WHERE id = ?", String.class, bookingId);
+    }
+}
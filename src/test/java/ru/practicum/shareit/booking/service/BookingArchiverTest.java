@@ -0,0 +1,98 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserPurger;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// архиватор работает в своих транзакциях, поэтому данные коммитятся и удаляются через UserPurger
+@SpringBootTest(properties = {
+        "shareit.users.purge.enabled=false",
+        "shareit.bookings.archive.enabled=false",
+        "shareit.bookings.archive.horizon=P30D",
+        "shareit.bookings.archive.batch-size=2"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BookingArchiverTest {
+    private final BookingArchiver bookingArchiver;
+    private final BookingService bookingService;
+    private final CompletedBookingIndex completedBookingIndex;
+    private final UserService userService;
+    private final ItemService itemService;
+    private final UserPurger userPurger;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@archive.ru'");
+        userPurger.purgeDeleted();
+    }
+
+    @Test
+    void shouldMoveOldBookingsAndReadThemWhenPagingReachesArchive() {
+        long owner = userService.create(UserDto.builder().name("Owner").email("owner@archive.ru").build()).getId();
+        long booker = userService.create(UserDto.builder().name("Booker").email("booker@archive.ru").build()).getId();
+        long item = itemService.create(ItemDtoRequest.builder().name("tent").description("archive tent")
+                .available(true).build(), owner).getId();
+        long oldItem = itemService.create(ItemDtoRequest.builder().name("stove").description("archive stove")
+                .available(true).build(), owner).getId();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Long> expected = new ArrayList<>();
+        expected.add(insertBooking(booker, item, now.plusDays(3)));
+        for (int i = 1; i <= 3; i++) {
+            expected.add(insertBooking(booker, item, now.minusDays(i * 2)));
+        }
+        for (int i = 1; i <= 5; i++) {
+            expected.add(insertBooking(booker, item, now.minusDays(100 + i)));
+        }
+        long oldOnly = insertBooking(booker, oldItem, now.minusDays(200));
+        expected.add(oldOnly);
+
+        assertTrue(bookingArchiver.archive(now) >= 6);
+
+        assertEquals(4, count("SELECT COUNT(*) FROM bookings WHERE booker_id = ?", booker));
+        assertEquals(6, count("SELECT COUNT(*) FROM bookings_archive WHERE booker_id = ?", booker));
+        assertEquals(expected.subList(0, 2), ids(bookingService.findAllByBookerId(BookingState.ALL, booker, 0, 2)));
+        assertEquals(expected.subList(2, 4), ids(bookingService.findAllByBookerId(BookingState.ALL, booker, 2, 2)));
+        assertEquals(expected.subList(4, 6), ids(bookingService.findAllByBookerId(BookingState.ALL, booker, 4, 2)));
+        assertEquals(expected, ids(bookingService.findAllByBookerId(BookingState.ALL, booker, 0, 20)));
+        assertEquals(expected.subList(1, 10), ids(bookingService.findAllByOwnerId(BookingState.PAST, owner, 0, 20)));
+        assertEquals(expected.subList(8, 10), ids(bookingService.findAllByOwnerId(BookingState.PAST, owner, 7, 7)));
+        assertEquals(oldOnly, bookingService.getBooking(oldOnly, owner).getId());
+        assertTrue(completedBookingIndex.hasCompletedBooking(booker, oldItem, now));
+    }
+
+    private long insertBooking(long bookerId, long itemId, LocalDateTime start) {
+        jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, booker_id, item_id, owner_id, status) " +
+                "SELECT ?, ?, ?, id, owner_id, 'APPROVED' FROM items WHERE id = ?", Timestamp.valueOf(start),
+                Timestamp.valueOf(start.plusDays(1)), bookerId, itemId);
+        return jdbcTemplate.queryForObject("SELECT id FROM bookings WHERE booker_id = ? AND start_date = ?",
+                Long.class, bookerId, Timestamp.valueOf(start));
+    }
+
+    private List<Long> ids(List<BookingDtoResponse> bookings) {
+        return bookings.stream().map(BookingDtoResponse::getId).collect(Collectors.toList());
+    }
+
+    private long count(String sql, long id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+}
@@ -0,0 +1,131 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserPurger;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Параллельные бронирования одной горячей вещи и множества холодных. Проверяет, что пересекающихся
+ * бронирований не появилось, и пишет пропускную способность.
+ * Нагрузка: -Dshareit.stress.requests=20000 -Dshareit.stress.threads=32
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "shareit.users.purge.enabled=false",
+        "shareit.bookings.approval.enabled=false"})
+class BookingConcurrencyStressTest {
+    private static final int COLD_ITEMS = 63;
+    private static final int BOOKERS = 16;
+
+    private final int requests = Integer.getInteger("shareit.stress.requests", 1_000);
+    private final int threads = Integer.getInteger("shareit.stress.threads", 16);
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserPurger userPurger;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@stress.ru'");
+        userPurger.purgeDeleted();
+    }
+
+    @Test
+    void concurrentBookingsNeverOverlap() throws Exception {
+        long owner = userService.create(UserDto.builder().name("owner").email("owner@stress.ru").build()).getId();
+        long[] bookers = new long[BOOKERS];
+        for (int i = 0; i < BOOKERS; i++) {
+            bookers[i] = userService.create(UserDto.builder().name("booker " + i).email("booker" + i + "@stress.ru")
+                    .build()).getId();
+        }
+        long[] items = new long[COLD_ITEMS + 1];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = itemService.create(ItemDtoRequest.builder().name("item " + i).description("stress item")
+                    .available(true).build(), owner).getId();
+        }
+        LocalDateTime base = LocalDateTime.now().plusDays(1).withNano(0);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger hotCreated = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int perThread = requests / threads;
+            workers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    // половина запросов приходится на одну вещь
+                    boolean hot = random.nextBoolean();
+                    long item = hot ? items[0] : items[1 + random.nextInt(COLD_ITEMS)];
+                    LocalDateTime from = base.plusHours(random.nextInt(24 * 60));
+                    BookingDtoRequest request = BookingDtoRequest.builder().itemId(item).start(from)
+                            .end(from.plusHours(1 + random.nextInt(72))).build();
+                    try {
+                        long booking = bookingService.create(request, bookers[random.nextInt(BOOKERS)]).getId();
+                        created.incrementAndGet();
+                        if (hot) {
+                            hotCreated.incrementAndGet();
+                        }
+                        if (random.nextInt(4) == 0) {
+                            bookingService.approve(booking, random.nextBoolean(), owner);
+                        }
+                    } catch (ConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        executor.shutdown();
+
+        int total = requests / threads * threads;
+        log.info("Stress: requests={} threads={} created={} (hot {}) conflicts={} throughput={} req/s",
+                total, threads, created.get(), hotCreated.get(), conflicts.get(),
+                Math.round(total / (elapsedNanos / 1e9)));
+        assertEquals(total, created.get() + conflicts.get());
+        assertTrue(hotCreated.get() > 0);
+        assertTrue(conflicts.get() > 0);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings a " +
+                "JOIN bookings b ON b.item_id = a.item_id AND b.id > a.id " +
+                "WHERE a.owner_id = ? AND a.status IN ('WAITING', 'APPROVED') AND b.status IN ('WAITING', 'APPROVED') " +
+                "AND a.start_date < b.end_date AND b.start_date < a.end_date", Integer.class, owner));
+    }
+}
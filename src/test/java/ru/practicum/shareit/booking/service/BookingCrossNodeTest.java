@@ -0,0 +1,151 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.ShareItApp;
+import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserPurger;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Два экземпляра приложения против одной базы Postgres: блокировки полос у каждого свои, пересечения
+ * не допускают advisory-блокировки и ограничение исключения.
+ * Запуск: mvn test -Dtest=BookingCrossNodeTest -Dshareit.test.postgres.url=jdbc:postgresql://localhost:5432/shareit
+ * -Dshareit.test.postgres.username=shareit -Dshareit.test.postgres.password=shareit
+ */
+@EnabledIfSystemProperty(named = "shareit.test.postgres.url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookingCrossNodeTest {
+    private static final int ROUNDS = 50;
+
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @BeforeAll
+    void start() {
+        first = node();
+        second = node();
+    }
+
+    @AfterAll
+    void stop() {
+        second.close();
+        first.close();
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.getBean(JdbcTemplate.class).update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@nodes.ru'");
+        first.getBean(UserPurger.class).purgeDeleted();
+    }
+
+    @Test
+    void onlyOneNodeBooksTheSameDates() throws Exception {
+        long owner = user("owner");
+        long firstBooker = user("first");
+        long secondBooker = user("second");
+        long item = first.getBean(ItemService.class).create(ItemDtoRequest.builder().name("kayak")
+                .description("shared kayak").available(true).build(), owner).getId();
+        BookingService firstService = first.getBean(BookingService.class);
+        BookingService secondService = second.getBean(BookingService.class);
+        LocalDateTime base = LocalDateTime.now().plusDays(1).withNano(0);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int created = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            BookingDtoRequest request = BookingDtoRequest.builder().itemId(item).start(base.plusDays(round))
+                    .end(base.plusDays(round).plusHours(12)).build();
+            Future<Boolean> a = executor.submit(book(barrier, () -> firstService.create(request, firstBooker)));
+            Future<Boolean> b = executor.submit(book(barrier, () -> secondService.create(request, secondBooker)));
+            created += (a.get() ? 1 : 0) + (b.get() ? 1 : 0);
+        }
+        executor.shutdown();
+
+        assertEquals(ROUNDS, created);
+    }
+
+    @Test
+    void overlappingApprovalIsRejectedByConstraint() {
+        long owner = user("owner2");
+        long booker = user("booker2");
+        long item = first.getBean(ItemService.class).create(ItemDtoRequest.builder().name("tent")
+                .description("shared tent").available(true).build(), owner).getId();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        long approved = first.getBean(BookingService.class).create(BookingDtoRequest.builder().itemId(item)
+                .start(start).end(start.plusDays(2)).build(), booker).getId();
+        first.getBean(BookingService.class).approve(approved, true, owner);
+        // проверку дат при создании обходит прямая вставка, как если бы строку записал другой узел без блокировки
+        JdbcTemplate jdbcTemplate = second.getBean(JdbcTemplate.class);
+        long overlapping = insertWaiting(jdbcTemplate, booker, item, start.plusDays(1));
+
+        ConflictException exception = assertThrows(ConflictException.class,
+                () -> second.getBean(BookingService.class).approve(overlapping, true, owner));
+        assertEquals("Вещь уже забронирована на эти даты", exception.getMessage());
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "UPDATE bookings SET status = 'APPROVED' WHERE id = ?", overlapping));
+
+        second.getBean(BookingService.class).cancel(approved, booker);
+        second.getBean(BookingService.class).approve(overlapping, true, owner);
+    }
+
+    private ConfigurableApplicationContext node() {
+        return new SpringApplicationBuilder(ShareItApp.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + System.getProperty("shareit.test.postgres.url"),
+                        "--spring.datasource.username=" + System.getProperty("shareit.test.postgres.username", "postgres"),
+                        "--spring.datasource.password=" + System.getProperty("shareit.test.postgres.password", ""),
+                        "--spring.datasource.driverClassName=org.postgresql.Driver",
+                        "--shareit.users.purge.enabled=false",
+                        "--shareit.bookings.approval.enabled=false",
+                        "--shareit.bookings.archive.enabled=false");
+    }
+
+    private long user(String name) {
+        return first.getBean(UserService.class).create(UserDto.builder().name(name).email(name + "@nodes.ru")
+                .build()).getId();
+    }
+
+    private static Callable<Boolean> book(CyclicBarrier barrier, Runnable create) {
+        return () -> {
+            barrier.await();
+            try {
+                create.run();
+                return true;
+            } catch (ConflictException e) {
+                return false;
+            }
+        };
+    }
+
+    private static long insertWaiting(JdbcTemplate jdbcTemplate, long bookerId, long itemId, LocalDateTime start) {
+        jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, booker_id, item_id, owner_id, status) " +
+                "SELECT ?, ?, ?, id, owner_id, 'WAITING' FROM items WHERE id = ?", Timestamp.valueOf(start),
+                Timestamp.valueOf(start.plusDays(2)), bookerId, itemId);
+        return jdbcTemplate.queryForObject("SELECT id FROM bookings WHERE booker_id = ? AND start_date = ?",
+                Long.class, bookerId, Timestamp.valueOf(start));
+    }
+}
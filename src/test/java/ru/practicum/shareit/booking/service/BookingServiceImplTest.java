@@ -343,4 +343,18 @@ class BookingServiceImplTest {
         assertThat(bookings.getId(),
                 equalTo(checkBookings.getId()));
     }
+
+    @Test
+    void shouldListRenamedItemAndNewStatusTest() {
+        createBookingDto(BookingStatus.REJECTED);
+        itemService.update(owner.getId(), itemDto.getId(), ItemDtoRequest.builder().name("pencil").build());
+
+        List<BookingDtoResponse> bookings = bookingService.findAllByBookerId(BookingState.REJECTED, booker.getId(),
+                0, 10);
+
+        assertEquals(1, bookings.size());
+        assertEquals(bookingDtoResponse.getId(), bookings.get(0).getId());
+        assertEquals("pencil", bookings.get(0).getItem().getName());
+        assertEquals(BookingStatus.REJECTED, bookings.get(0).getStatus());
+    }
 }
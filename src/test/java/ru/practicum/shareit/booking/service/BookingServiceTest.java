@@ -12,14 +12,21 @@ import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingViewRepository;
+import ru.practicum.shareit.booking.repository.WaitlistRepository;
 import ru.practicum.shareit.exception.BookOwnItemsException;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.EntityNotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemCoBookingIndex;
+import ru.practicum.shareit.item.service.ItemPopularityTracker;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistenceIndex;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
@@ -28,6 +35,9 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RequiredArgsConstructor
@@ -49,24 +59,50 @@ class BookingServiceTest {
     @Mock
     BookingRepository bookingRepository;
     @Mock
+    BookingViewRepository bookingViewRepository;
+    @Mock
     UserRepository userRepository;
     @Mock
+    UserExistenceIndex userExistenceIndex;
+    @Mock
     ItemRepository itemRepository;
+    @Mock
+    ItemPopularityTracker popularityTracker;
+    @Mock
+    ItemCoBookingIndex coBookingIndex;
+    @Mock
+    ApprovalExpiry approvalExpiry;
+    @Mock
+    ItemWaitlist itemWaitlist;
+    @Mock
+    ItemLocks itemLocks;
+    @Mock
+    WaitlistRepository waitlistRepository;
 
     @BeforeEach
     void initialize() {
         bookingService = new BookingServiceImpl(
                 bookingRepository,
+                bookingViewRepository,
                 itemRepository,
-                userRepository
-
+                userRepository,
+                userExistenceIndex,
+                popularityTracker,
+                coBookingIndex,
+                approvalExpiry,
+                itemWaitlist,
+                itemLocks,
+                waitlistRepository,
+                Duration.ofDays(365)
         );
     }
 
     @Test
     void createBookingWhenItemIsNotAvailableThenThrowValidationException() {
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(User.builder().build()));
-        when(itemRepository.findById(ITEM_ID)).thenReturn(Optional.of(Item.builder().available(false).build()));
+        when(userExistenceIndex.exists(anyLong())).thenReturn(true);
+        User owner = User.builder().id(USER_ID + 1).build();
+        when(itemRepository.findById(ITEM_ID))
+                .thenReturn(Optional.of(Item.builder().available(false).owner(owner).build()));
         final ValidationException exception = assertThrows(
                 ValidationException.class,
                 () -> bookingService.create(addBookingDto, USER_ID)
@@ -77,7 +113,7 @@ class BookingServiceTest {
 
     @Test
     void createBookingWhenBookerIsOwnerThrowBookOwnItemsException() {
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(User.builder().id(USER_ID).build()));
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(true);
 
         User owner = User.builder().id(USER_ID).build();
         Item item = Item.builder().available(true).owner(owner).build();
@@ -96,7 +132,7 @@ class BookingServiceTest {
         Booking booking = Booking.builder().build();
         when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
 
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(false);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -128,8 +164,7 @@ class BookingServiceTest {
         when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
 
         long wrongUserId = USER_ID + USER_ID2;
-        User wrongUser = User.builder().id(wrongUserId).build();
-        when(userRepository.findById(wrongUserId)).thenReturn(Optional.of(wrongUser));
+        when(userExistenceIndex.exists(wrongUserId)).thenReturn(true);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -148,9 +183,10 @@ class BookingServiceTest {
         Item item = Item.builder().owner(owner).build();
         Booking booking = Booking.builder().id(BOOKING_ID).start(LocalDateTime.now()).end(LocalDateTime.now()
                 .plusHours(1)).booker(booker).item(item).status(BookingStatus.WAITING).build();
+        when(bookingRepository.findItemIdById(BOOKING_ID)).thenReturn(Optional.of(ITEM_ID));
         when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
 
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(booker));
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(true);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -165,24 +201,57 @@ class BookingServiceTest {
     void approvedWhenRejected() {
         User booker = User.builder().id(USER_ID3).build();
         User ownerOfItem = User.builder().id(USER_ID).build();
-        Item item = Item.builder().owner(ownerOfItem).name("Pen").build();
+        Item item = Item.builder().id(ITEM_ID).owner(ownerOfItem).name("Pen").build();
         Booking booking = Booking.builder().id(BOOKING_ID).start(LocalDateTime.now()).end(LocalDateTime.now()
                 .plusHours(1)).booker(booker).item(item).status(BookingStatus.WAITING).build();
+        when(bookingRepository.findItemIdById(BOOKING_ID)).thenReturn(Optional.of(ITEM_ID));
         when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
 
-        User owner = User.builder().id(USER_ID).build();
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(owner));
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(true);
 
-        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         BookingDtoResponse bookingDto = bookingService.approve(BOOKING_ID, false, USER_ID);
 
         assertThat(bookingDto.getStatus(), equalTo(BookingStatus.REJECTED));
+        verify(itemWaitlist).promote(eq(ITEM_ID), any(LocalDateTime.class));
+    }
+
+    @Test
+    void createBookingWhenDatesOccupiedThenThrowConflictException() {
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(true);
+        User owner = User.builder().id(USER_ID2).build();
+        Item item = Item.builder().id(ITEM_ID).available(true).owner(owner).build();
+        when(itemRepository.findById(ITEM_ID)).thenReturn(Optional.of(item));
+        when(userExistenceIndex.exists(USER_ID2)).thenReturn(true);
+        when(itemWaitlist.isOccupied(ITEM_ID, bookingStartDate, bookingEndDate)).thenReturn(true);
+
+        final ConflictException exception = assertThrows(
+                ConflictException.class,
+                () -> bookingService.create(addBookingDto, USER_ID)
+        );
+
+        assertEquals("Вещь уже забронирована на эти даты, можно встать в очередь ожидания", exception.getMessage());
+    }
+
+    @Test
+    void cancelWhenUserIsNotBookerThenThrowEntityNotFoundException() {
+        User booker = User.builder().id(USER_ID3).build();
+        Booking booking = Booking.builder().id(BOOKING_ID).booker(booker).status(BookingStatus.WAITING).build();
+        when(bookingRepository.findItemIdById(BOOKING_ID)).thenReturn(Optional.of(ITEM_ID));
+        when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
+
+        final EntityNotFoundException exception = assertThrows(
+                EntityNotFoundException.class,
+                () -> bookingService.cancel(BOOKING_ID, USER_ID)
+        );
+
+        assertEquals("Отменить бронирование может только его автор", exception.getMessage());
     }
 
     @Test
     void approveWhenBookingNotFoundThrowEntityNotFoundException() {
-        when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.empty());
+        when(bookingRepository.findItemIdById(BOOKING_ID)).thenReturn(Optional.empty());
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
                 () -> bookingService.approve(BOOKING_ID, true, USER_ID)
@@ -194,9 +263,10 @@ class BookingServiceTest {
     @Test
     void approvedWhenUserNotFoundThenThrowEntityNotFoundException() {
         Booking booking = Booking.builder().status(BookingStatus.WAITING).build();
+        when(bookingRepository.findItemIdById(BOOKING_ID)).thenReturn(Optional.of(ITEM_ID));
         when(bookingRepository.findById(BOOKING_ID)).thenReturn(Optional.of(booking));
 
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(false);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -208,7 +278,7 @@ class BookingServiceTest {
 
     @Test
     void findAllByOwnerIdWhenUserNotFoundThenThrowEntityNotFoundException() {
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(false);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -221,7 +291,7 @@ class BookingServiceTest {
     @Test
     void findAllByBookerIdWhenUserNotFoundThenThrowEntityNotFoundException() {
 
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(false);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
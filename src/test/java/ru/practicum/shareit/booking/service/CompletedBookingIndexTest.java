@@ -0,0 +1,54 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CompletedBookingIndexTest {
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Test
+    void shouldCacheCompletedPairs() {
+        CompletedBookingIndex index = new CompletedBookingIndex(bookingRepository, 100);
+        when(bookingRepository.existsByBookerIdAndItemIdAndEndBefore(anyLong(), anyLong(), any())).thenReturn(true);
+
+        assertTrue(index.hasCompletedBooking(1L, 10L, LocalDateTime.now()));
+        assertTrue(index.hasCompletedBooking(1L, 10L, LocalDateTime.now()));
+        verify(bookingRepository, times(1)).existsByBookerIdAndItemIdAndEndBefore(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void shouldQueryAgainWhileBookingIsNotFinished() {
+        CompletedBookingIndex index = new CompletedBookingIndex(bookingRepository, 100);
+        when(bookingRepository.existsByBookerIdAndItemIdAndEndBefore(anyLong(), anyLong(), any()))
+                .thenReturn(false, true);
+
+        assertFalse(index.hasCompletedBooking(1L, 10L, LocalDateTime.now()));
+        assertTrue(index.hasCompletedBooking(1L, 10L, LocalDateTime.now()));
+    }
+
+    // бронирование могло появиться в БД в обход этого экземпляра, поэтому промах всегда проверяется запросом
+    @Test
+    void shouldQueryPairsUnknownToThisInstance() {
+        CompletedBookingIndex index = new CompletedBookingIndex(bookingRepository, 100);
+        when(bookingRepository.existsByBookerIdAndItemIdAndEndBefore(eq(2L), eq(20L), any())).thenReturn(false);
+        when(bookingRepository.countArchivedByBookerIdAndItemId(2L, 20L)).thenReturn(1L);
+
+        assertTrue(index.hasCompletedBooking(2L, 20L, LocalDateTime.now()));
+    }
+}
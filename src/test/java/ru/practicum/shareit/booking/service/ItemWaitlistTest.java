@@ -0,0 +1,157 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.dto.WaitlistDto;
+import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.EntityNotFoundException;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserPurger;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// продвижение очереди проверяется после коммита, поэтому данные удаляются через UserPurger
+@SpringBootTest(properties = {
+        "shareit.users.purge.enabled=false",
+        "shareit.bookings.approval.enabled=false",
+        "shareit.bookings.approval.timeout=PT1M"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemWaitlistTest {
+    private final ItemWaitlist itemWaitlist;
+    private final ApprovalExpiry approvalExpiry;
+    private final BookingService bookingService;
+    private final UserService userService;
+    private final ItemService itemService;
+    private final UserPurger userPurger;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@waitlist.ru'");
+        userPurger.purgeDeleted();
+    }
+
+    @Test
+    void shouldPromoteFirstCompatibleWaiterWhenDatesAreFreed() {
+        long owner = user("owner");
+        long first = user("first");
+        long second = user("second");
+        long third = user("third");
+        long item = itemService.create(ItemDtoRequest.builder().name("boat").description("waitlist boat")
+                .available(true).build(), owner).getId();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        long booking = bookingService.create(request(item, start, start.plusDays(2)), first).getId();
+
+        assertThrows(ConflictException.class, () -> bookingService.create(request(item, start.plusDays(1),
+                start.plusDays(3)), second));
+        assertThrows(ValidationException.class, () -> bookingService.joinWaitlist(request(item, start.plusDays(5),
+                start.plusDays(6)), second));
+        bookingService.joinWaitlist(request(item, start.plusDays(1), start.plusDays(3)), second);
+        bookingService.joinWaitlist(request(item, start, start.plusDays(2)), third);
+        assertEquals(2, itemWaitlist.size(item));
+
+        bookingService.approve(booking, false, owner);
+        assertEquals(1, itemWaitlist.size(item));
+        assertEquals(List.of(), bookingService.findWaitlist(second));
+        BookingDtoResponse promoted = waiting(second);
+        assertEquals(start.plusDays(1), promoted.getStart());
+        assertEquals(1, bookingService.findWaitlist(third).size());
+
+        bookingService.cancel(promoted.getId(), second);
+        assertEquals(BookingStatus.CANCELED, bookingService.getBooking(promoted.getId(), second).getStatus());
+        assertEquals(0, itemWaitlist.size(item));
+        assertEquals(start, waiting(third).getStart());
+    }
+
+    @Test
+    void shouldPromoteWaiterWhenUnansweredBookingExpires() {
+        long owner = user("owner2");
+        long booker = user("booker2");
+        long waiter = user("waiter2");
+        long item = itemService.create(ItemDtoRequest.builder().name("bike").description("waitlist bike")
+                .available(true).build(), owner).getId();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        LocalDateTime created = LocalDateTime.now().minusHours(1).withNano(0);
+        jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, booker_id, item_id, owner_id, status, " +
+                "created) SELECT ?, ?, ?, id, owner_id, 'WAITING', ? FROM items WHERE id = ?", Timestamp.valueOf(start),
+                Timestamp.valueOf(start.plusDays(1)), booker, Timestamp.valueOf(created), item);
+        bookingService.joinWaitlist(request(item, start, start.plusDays(1)), waiter);
+
+        // колесо общее для тестов одного контекста, поэтому часы не переводятся вперед дальше секунды
+        approvalExpiry.load();
+        approvalExpiry.expire(System.currentTimeMillis() + 1000);
+
+        assertEquals(start, waiting(waiter).getStart());
+        assertEquals(0, itemWaitlist.size(item));
+    }
+
+    @Test
+    void shouldPromoteWaiterQueuedByAnotherInstance() {
+        long owner = user("owner4");
+        long booker = user("booker4");
+        long waiter = user("waiter4");
+        long item = itemService.create(ItemDtoRequest.builder().name("kayak").description("waitlist kayak")
+                .available(true).build(), owner).getId();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        long booking = bookingService.create(request(item, start, start.plusDays(1)), booker).getId();
+        // запись добавлена мимо ItemWaitlist, как если бы в очередь встали через другой экземпляр
+        jdbcTemplate.update("INSERT INTO waitlist (item_id, booker_id, start_date, end_date, created) " +
+                "VALUES (?, ?, ?, ?, ?)", item, waiter, Timestamp.valueOf(start), Timestamp.valueOf(start.plusDays(1)),
+                Timestamp.valueOf(LocalDateTime.now()));
+        assertEquals(1, itemWaitlist.size(item));
+
+        bookingService.approve(booking, false, owner);
+
+        assertEquals(start, waiting(waiter).getStart());
+        assertEquals(0, itemWaitlist.size(item));
+    }
+
+    @Test
+    void shouldLeaveOwnWaitlistEntryOnly() {
+        long owner = user("owner3");
+        long booker = user("booker3");
+        long waiter = user("waiter3");
+        long item = itemService.create(ItemDtoRequest.builder().name("tent").description("waitlist tent")
+                .available(true).build(), owner).getId();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        bookingService.create(request(item, start, start.plusDays(1)), booker);
+        WaitlistDto entry = bookingService.joinWaitlist(request(item, start, start.plusDays(1)), waiter);
+
+        assertThrows(EntityNotFoundException.class, () -> bookingService.leaveWaitlist(entry.getId(), booker));
+        bookingService.leaveWaitlist(entry.getId(), waiter);
+
+        assertEquals(List.of(), bookingService.findWaitlist(waiter));
+        assertEquals(0, itemWaitlist.size(item));
+    }
+
+    private long user(String name) {
+        return userService.create(UserDto.builder().name(name).email(name + "@waitlist.ru").build()).getId();
+    }
+
+    private BookingDtoRequest request(long itemId, LocalDateTime start, LocalDateTime end) {
+        return BookingDtoRequest.builder().itemId(itemId).start(start).end(end).build();
+    }
+
+    private BookingDtoResponse waiting(long bookerId) {
+        List<BookingDtoResponse> bookings = bookingService.findAllByBookerId(BookingState.WAITING, bookerId, 0, 10);
+        assertEquals(1, bookings.size());
+        return bookings.get(0);
+    }
+}
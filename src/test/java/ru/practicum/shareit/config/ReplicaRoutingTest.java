@@ -0,0 +1,108 @@
+package ru.practicum.shareit.config;
+
+import lombok.RequiredArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserPurger;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// реплика — отдельная H2 без репликации, поэтому по ее содержимому видно, куда ушло чтение
+@SpringBootTest(properties = {
+        "shareit.users.purge.enabled=false",
+        "shareit.datasource.replica.url=" + ReplicaRoutingTest.REPLICA_URL,
+        "shareit.datasource.replica.username=test",
+        "shareit.datasource.replica.password=test",
+        "shareit.datasource.replica.read-your-writes=PT1H"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ReplicaRoutingTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:shareit-replica;DB_CLOSE_DELAY=-1";
+
+    private final UserService userService;
+    private final UserPurger userPurger;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadYourWrites readYourWrites;
+    private final ReadYourWritesFilter readYourWritesFilter;
+
+    @BeforeAll
+    static void createReplica() {
+        Flyway.configure().dataSource(REPLICA_URL, "test", "test")
+                .locations("classpath:db/migration/common")
+                .load()
+                .migrate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        readYourWrites.clear();
+        jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@replica.ru'");
+        userPurger.purgeDeleted();
+    }
+
+    @Test
+    void shouldReadFromReplicaAndWriteToPrimary() {
+        userService.create(UserDto.builder().name("Nik").email("nik@replica.ru").build());
+
+        assertThat(emails(), not(hasItem("nik@replica.ru")));
+        assertThat(jdbcTemplate.queryForList("SELECT email FROM users", String.class), hasItem("nik@replica.ru"));
+    }
+
+    @Test
+    void shouldReadOwnWritesFromPrimaryWithinWindow() {
+        UserDto writer = userService.create(UserDto.builder().name("Writer").email("writer@replica.ru").build());
+        UserDto other = userService.create(UserDto.builder().name("Other").email("other@replica.ru").build());
+
+        readYourWrites.bind(writer.getId());
+        userService.update(UserDto.builder().name("Writer2").build(), writer.getId());
+        assertThat(emails(), hasItem("writer@replica.ru"));
+
+        readYourWrites.bind(other.getId());
+        assertThat(emails(), not(hasItem("writer@replica.ru")));
+    }
+
+    @Test
+    void shouldBindUserFromHeaderForRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/items");
+        request.addHeader(ReadYourWritesFilter.USER_ID, "42");
+        boolean[] primary = new boolean[1];
+        readYourWrites.bind(42L);
+        readYourWrites.onWrite();
+        readYourWrites.clear();
+
+        readYourWritesFilter.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void service(HttpServletRequest req,
+                                           HttpServletResponse res) {
+                        primary[0] = readYourWrites.mustReadPrimary();
+                    }
+                }));
+
+        assertTrue(primary[0]);
+        assertFalse(readYourWrites.mustReadPrimary());
+    }
+
+    private List<String> emails() {
+        return userService.getAllUsers().stream().map(UserDto::getEmail).collect(Collectors.toList());
+    }
+}
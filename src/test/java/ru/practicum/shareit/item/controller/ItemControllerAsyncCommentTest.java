@@ -0,0 +1,54 @@
+package ru.practicum.shareit.item.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.item.dto.CommentDtoRequest;
+import ru.practicum.shareit.item.dto.CommentDtoResponse;
+import ru.practicum.shareit.item.service.ItemService;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.LocalDateTime.now;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ItemController.class, properties = "shareit.comments.async.enabled=true")
+class ItemControllerAsyncCommentTest {
+    private final CommentDtoResponse commentDto = CommentDtoResponse.builder()
+            .id(-1L)
+            .text("qwerty")
+            .authorName("Paul")
+            .created(now())
+            .build();
+    @MockBean
+    ItemService itemService;
+    @Autowired
+    ObjectMapper mapper;
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void shouldAcceptCommentTest() throws Exception {
+        when(itemService.addCommentAsync(anyLong(), anyLong(), any(CommentDtoRequest.class)))
+                .thenReturn(commentDto);
+        mvc.perform(post("/items/{itemId}/comment", 1)
+                        .content(mapper.writeValueAsString(CommentDtoRequest.builder().text("qwerty").build()))
+                        .header("X-Sharer-User-Id", 1)
+                        .contentType(APPLICATION_JSON)
+                        .characterEncoding(UTF_8)
+                        .accept(APPLICATION_JSON)
+                )
+                .andExpect(jsonPath("$.id", is(-1)))
+                .andExpect(jsonPath("$.text", is(commentDto.getText())))
+                .andExpect(status().isAccepted());
+    }
+}
@@ -158,6 +158,29 @@ class ItemControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void shouldGetPopularItemsTest() throws Exception {
+        when(itemService.getPopular(anyInt()))
+                .thenReturn(of(itemDtoRequest));
+        mvc.perform(get("/items/popular")
+                        .param("size", "5")
+                )
+                .andExpect(jsonPath("$[0].id", is(itemDtoRequest.getId()), Long.class))
+                .andExpect(jsonPath("$[0].name", is(itemDtoRequest.getName())))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldGetRelatedItemsTest() throws Exception {
+        when(itemService.getRelated(anyLong(), anyInt()))
+                .thenReturn(of(itemDtoRequest));
+        mvc.perform(get("/items/1/related"))
+                .andExpect(jsonPath("$[0].id", is(itemDtoRequest.getId()), Long.class))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void searchShouldReturnEmptyListTest() throws Exception {
         mvc.perform(get("/items/search")
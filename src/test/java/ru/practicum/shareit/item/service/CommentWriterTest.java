@@ -0,0 +1,60 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CommentWriterTest {
+    @Mock
+    private CommentRepository commentRepository;
+    @Mock
+    private ItemRepository itemRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldWriteQueuedCommentsInBatches() {
+        CommentWriter writer = new CommentWriter(commentRepository, itemRepository, userRepository,
+                transactionManager, false, 10, 2, Duration.ofMillis(10));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writer.enqueue(new CommentWriter.PendingComment(writer.nextProvisionalId(), 1L, 2L,
+                    "text" + i, LocalDateTime.now())));
+        }
+        writer.flush();
+
+        ArgumentCaptor<List<Comment>> batches = ArgumentCaptor.forClass(List.class);
+        verify(commentRepository, times(2)).saveAll(batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+        assertEquals("text2", batches.getAllValues().get(1).get(0).getText());
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() {
+        CommentWriter writer = new CommentWriter(commentRepository, itemRepository, userRepository,
+                transactionManager, false, 1, 2, Duration.ofMillis(10));
+        assertTrue(writer.enqueue(new CommentWriter.PendingComment(-1L, 1L, 2L, "first", LocalDateTime.now())));
+        assertFalse(writer.enqueue(new CommentWriter.PendingComment(-2L, 1L, 2L, "second", LocalDateTime.now())));
+    }
+}
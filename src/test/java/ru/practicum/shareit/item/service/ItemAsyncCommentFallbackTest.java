@@ -0,0 +1,63 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.dto.CommentDtoRequest;
+import ru.practicum.shareit.item.dto.CommentDtoResponse;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserPurger;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// фоновый поток не запущен, поэтому второй отзыв не помещается в очередь и пишется синхронно
+@SpringBootTest(properties = {
+        "shareit.users.purge.enabled=false",
+        "shareit.comments.async.enabled=false",
+        "shareit.comments.async.queue-capacity=1"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemAsyncCommentFallbackTest {
+    private final ItemService itemService;
+    private final BookingService bookingService;
+    private final UserService userService;
+    private final UserPurger userPurger;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@fallback.ru'");
+        userPurger.purgeDeleted();
+    }
+
+    @Test
+    void shouldStoreCommentWhenQueueIsFull() {
+        long owner = userService.create(UserDto.builder().name("owner").email("owner@fallback.ru").build()).getId();
+        long booker = userService.create(UserDto.builder().name("booker").email("booker@fallback.ru").build())
+                .getId();
+        long item = itemService.create(ItemDtoRequest.builder().name("saw").description("fallback saw")
+                .available(true).build(), owner).getId();
+        LocalDateTime start = LocalDateTime.now().minusDays(2);
+        long booking = bookingService.create(BookingDtoRequest.builder().itemId(item).start(start)
+                .end(start.plusDays(1)).build(), booker).getId();
+        bookingService.approve(booking, true, owner);
+
+        CommentDtoResponse queued = itemService.addCommentAsync(booker, item,
+                CommentDtoRequest.builder().text("queued").build());
+        CommentDtoResponse stored = itemService.addCommentAsync(booker, item,
+                CommentDtoRequest.builder().text("stored").build());
+
+        assertTrue(queued.getId() < 0);
+        assertEquals(stored.getId(), jdbcTemplate.queryForObject("SELECT id FROM comments WHERE item_id = ?",
+                Long.class, item));
+    }
+}
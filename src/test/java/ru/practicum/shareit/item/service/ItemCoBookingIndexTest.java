@@ -0,0 +1,99 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.dto.BookerItemView;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ItemCoBookingIndexTest {
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Test
+    void shouldRankItemsBookedBySameBookers() {
+        when(bookingRepository.findDistinctBookerItemPairs(BookingStatus.APPROVED.name())).thenReturn(List.of(
+                pair(1L, 10L), pair(1L, 20L), pair(1L, 30L),
+                pair(2L, 10L), pair(2L, 30L),
+                pair(3L, 20L)
+        ));
+        ItemCoBookingIndex index = new ItemCoBookingIndex(bookingRepository, 20, 100, 100);
+        index.load();
+
+        assertArrayEquals(new long[]{30L, 20L}, index.related(10L));
+        assertArrayEquals(new long[]{10L, 30L}, index.related(20L));
+        assertArrayEquals(new long[0], index.related(40L));
+    }
+
+    @Test
+    void shouldUpdateIncrementallyAndTruncateToTopN() {
+        when(bookingRepository.findDistinctBookerItemPairs(BookingStatus.APPROVED.name())).thenReturn(List.of());
+        ItemCoBookingIndex index = new ItemCoBookingIndex(bookingRepository, 1, 100, 100);
+        index.load();
+        index.onApproved(1L, 10L);
+        index.onApproved(1L, 20L);
+        assertArrayEquals(new long[]{20L}, index.related(10L));
+
+        index.onApproved(2L, 10L);
+        index.onApproved(2L, 30L);
+        index.onApproved(3L, 10L);
+        index.onApproved(3L, 30L);
+        assertArrayEquals(new long[]{30L}, index.related(10L));
+    }
+
+    @Test
+    void shouldKeepFrequentCandidatesWithBoundedCounters() {
+        when(bookingRepository.findDistinctBookerItemPairs(BookingStatus.APPROVED.name())).thenReturn(List.of());
+        ItemCoBookingIndex index = new ItemCoBookingIndex(bookingRepository, 2, 4, 100);
+        index.load();
+        for (long booker = 1; booker <= 5; booker++) {
+            index.onApproved(booker, 10L);
+            index.onApproved(booker, 20L);
+        }
+        for (long rare = 100; rare < 110; rare++) {
+            index.onApproved(rare, 10L);
+            index.onApproved(rare, rare);
+        }
+
+        long[] related = index.related(10L);
+        assertEquals(2, related.length);
+        assertEquals(20L, related[0]);
+    }
+
+    @Test
+    void shouldForgetOldestItemsOfBookerBeyondHistory() {
+        when(bookingRepository.findDistinctBookerItemPairs(BookingStatus.APPROVED.name())).thenReturn(List.of());
+        ItemCoBookingIndex index = new ItemCoBookingIndex(bookingRepository, 20, 100, 2);
+        index.load();
+        index.onApproved(1L, 10L);
+        index.onApproved(1L, 20L);
+        index.onApproved(1L, 30L);
+        index.onApproved(1L, 40L);
+
+        assertArrayEquals(new long[]{20L, 30L}, index.related(10L));
+        assertArrayEquals(new long[]{20L, 30L}, index.related(40L));
+    }
+
+    private BookerItemView pair(long bookerId, long itemId) {
+        return new BookerItemView() {
+            @Override
+            public Long getBookerId() {
+                return bookerId;
+            }
+
+            @Override
+            public Long getItemId() {
+                return itemId;
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.dto.ItemCreatedView;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemPopularityTrackerTest {
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @Test
+    void shouldReturnMostBookedItemsFirst() {
+        ItemPopularityTracker tracker = new ItemPopularityTracker(null, Duration.ofDays(1), 7, 10, 100);
+        for (int i = 0; i < 5; i++) {
+            tracker.record(1L, DAY);
+        }
+        for (int i = 0; i < 3; i++) {
+            tracker.record(2L, DAY);
+        }
+        tracker.record(3L, DAY);
+        tracker.refresh(DAY);
+
+        assertEquals(List.of(1L, 2L, 3L), tracker.top(10));
+        assertEquals(List.of(1L), tracker.top(1));
+    }
+
+    @Test
+    void shouldForgetBookingsOutsideWindow() {
+        ItemPopularityTracker tracker = new ItemPopularityTracker(null, Duration.ofDays(1), 7, 10, 100);
+        tracker.record(1L, DAY);
+        tracker.record(1L, DAY);
+        tracker.record(2L, 5 * DAY);
+
+        tracker.refresh(5 * DAY);
+        assertEquals(List.of(1L, 2L), tracker.top(10));
+        tracker.refresh(8 * DAY);
+        assertEquals(List.of(2L), tracker.top(10));
+        tracker.refresh(12 * DAY);
+        assertTrue(tracker.top(10).isEmpty());
+    }
+
+    @Test
+    void shouldKeepHeavyHittersWithBoundedCounters() {
+        ItemPopularityTracker tracker = new ItemPopularityTracker(null, Duration.ofDays(1), 7, 4, 100);
+        for (long item = 100; item < 200; item++) {
+            tracker.record(item, DAY);
+            tracker.record(7L, DAY);
+        }
+
+        tracker.refresh(DAY);
+
+        List<Long> top = tracker.top(10);
+        assertTrue(top.size() <= 4);
+        assertEquals(7L, top.get(0));
+    }
+
+    @Test
+    void shouldServeSnapshotUntilRefresh() {
+        ItemPopularityTracker tracker = new ItemPopularityTracker(null, Duration.ofDays(1), 7, 10, 100);
+        tracker.record(1L, DAY);
+        tracker.refresh(DAY);
+        tracker.record(2L, DAY);
+        tracker.record(2L, DAY);
+
+        assertEquals(List.of(1L), tracker.top(10));
+        tracker.refresh(DAY);
+        assertEquals(List.of(2L, 1L), tracker.top(10));
+    }
+
+    @Test
+    void shouldLoadApprovedBookingsAndCountApprovalsOnce() {
+        BookingRepository bookingRepository = mock(BookingRepository.class);
+        LocalDateTime now = LocalDateTime.now();
+        when(bookingRepository.findItemCreatedByStatusSince(eq(BookingStatus.APPROVED), any())).thenReturn(List.of(
+                approved(2L, now), approved(2L, now), approved(1L, now)));
+        ItemPopularityTracker tracker = new ItemPopularityTracker(bookingRepository, Duration.ofDays(1), 7, 10, 100);
+        tracker.load();
+        assertEquals(List.of(2L, 1L), tracker.top(10));
+        tracker.onApproved(1L);
+        tracker.onApproved(1L);
+        tracker.refresh();
+
+        assertEquals(List.of(1L, 2L), tracker.top(10));
+    }
+
+    private static ItemCreatedView approved(long itemId, LocalDateTime created) {
+        return new ItemCreatedView() {
+            @Override
+            public Long getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public LocalDateTime getCreated() {
+                return created;
+            }
+        };
+    }
+}
@@ -51,10 +51,11 @@ class ItemServiceImplTest {
 
     }
 
-    private CommentDtoResponse saveCommentDto(String commentText, UserDto user) {
+    // бронирования одной вещи не могут пересекаться, поэтому каждому комментатору свой интервал
+    private CommentDtoResponse saveCommentDto(String commentText, UserDto user, long secondsAgo) {
         UserDto booker = userService.create(user);
-        BookingDtoRequest bookingDtoRequest = BookingDtoRequest.builder().start(now().minusSeconds(2))
-                .end(now().minusSeconds(1)).itemId(itemDto.getId()).build();
+        BookingDtoRequest bookingDtoRequest = BookingDtoRequest.builder().start(now().minusSeconds(secondsAgo + 1))
+                .end(now().minusSeconds(secondsAgo)).itemId(itemDto.getId()).build();
         BookingDtoResponse bookingDtoResponse = bookingService.create(bookingDtoRequest, booker.getId());
         bookingService.approve(bookingDtoResponse.getId(), true, userDto.getId());
         CommentDtoRequest commentDtoRequest = CommentDtoRequest.builder().text(commentText).build();
@@ -161,8 +162,8 @@ class ItemServiceImplTest {
 
     @Test
     void getAllCommentsTest() {
-        saveCommentDto("Winter", UserDto.builder().name("David").email("dav@mail.com").build());
-        saveCommentDto("Spring", UserDto.builder().name("Vanya").email("van@mail.com").build());
+        saveCommentDto("Winter", UserDto.builder().name("David").email("dav@mail.com").build(), 3);
+        saveCommentDto("Spring", UserDto.builder().name("Vanya").email("van@mail.com").build(), 1);
 
         ItemDtoResponse itemDtoResponse = itemService.getItem(itemDto.getId(), userDto.getId());
         List<Comment> comments = entityManager.createQuery(
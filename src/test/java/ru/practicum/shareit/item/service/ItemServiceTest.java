@@ -6,8 +6,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingViewRepository;
+import ru.practicum.shareit.booking.service.CompletedBookingIndex;
 
 import ru.practicum.shareit.exception.EntityNotFoundException;
+import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.CommentDtoRequest;
 import ru.practicum.shareit.item.dto.CommentDtoResponse;
 import ru.practicum.shareit.item.dto.ItemDtoRequest;
@@ -20,10 +23,14 @@ import ru.practicum.shareit.item.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
 
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
+import ru.practicum.shareit.request.service.ItemRequestFeedCache;
+import ru.practicum.shareit.request.service.OpenRequestIndex;
 import ru.practicum.shareit.user.UserMapper;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistenceIndex;
 
 import java.util.List;
 import java.util.Optional;
@@ -32,6 +39,8 @@ import static java.time.LocalDateTime.now;
 import static java.util.List.of;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static ru.practicum.shareit.user.UserMapper.toUser;
 
@@ -43,11 +52,29 @@ class ItemServiceTest {
     @Mock
     private BookingRepository bookingRepository;
     @Mock
+    private BookingViewRepository bookingViewRepository;
+    @Mock
     private ItemRepository itemRepository;
     @Mock
     private UserRepository userRepository;
     @Mock
+    private UserExistenceIndex userExistenceIndex;
+    @Mock
     private ItemRequestRepository itemRequestRepository;
+    @Mock
+    private ItemPopularityTracker popularityTracker;
+    @Mock
+    private ItemCoBookingIndex coBookingIndex;
+    @Mock
+    private CommentWriter commentWriter;
+    @Mock
+    private CompletedBookingIndex completedBookingIndex;
+    @Mock
+    private OpenRequestIndex openRequestIndex;
+    @Mock
+    private RequestSuggestionRepository requestSuggestionRepository;
+    @Mock
+    private ItemRequestFeedCache itemRequestFeedCache;
     private ItemService itemService;
     private ItemDtoRequest itemDtoRequest;
     private UserDto userDto;
@@ -59,9 +86,18 @@ class ItemServiceTest {
         itemService = new ItemServiceImpl(
                 itemRepository,
                 userRepository,
+                userExistenceIndex,
                 bookingRepository,
+                bookingViewRepository,
                 commentRepository,
-                itemRequestRepository
+                itemRequestRepository,
+                popularityTracker,
+                coBookingIndex,
+                commentWriter,
+                completedBookingIndex,
+                openRequestIndex,
+                requestSuggestionRepository,
+                itemRequestFeedCache
         );
         userDto = UserDto.builder().id(1L).name("Eduard").email("ed@mail.com").build();
         user = UserMapper.toUser(userDto);
@@ -72,8 +108,10 @@ class ItemServiceTest {
     }
 
     private ItemDtoResponse saveItemDto() {
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.of(user));
+        when(userExistenceIndex.exists(anyLong()))
+                .thenReturn(true);
+        when(userRepository.getReferenceById(anyLong()))
+                .thenReturn(user);
         when(itemRepository.save(any()))
                 .thenReturn(item);
         return itemService.create(itemDtoRequest, userDto.getId());
@@ -147,6 +185,7 @@ class ItemServiceTest {
                 .thenReturn(of(comment));
         when(itemRepository.findById(anyLong()))
                 .thenReturn(Optional.of(item));
+        when(userExistenceIndex.exists(anyLong())).thenReturn(true);
         List<CommentDtoResponse> allComments = itemService.getItem(1, 1).getComments();
 
         assertEquals(allComments.get(0).getId(), comment.getId());
@@ -158,7 +197,7 @@ class ItemServiceTest {
         Item newItem = Item.builder().id(2L).name("Bag").description("New bag")
                 .available(true).owner(toUser(userDto)).build();
         when(itemRepository.findAllByOwnerIdOrderById(anyLong(), any())).thenReturn((of(item, newItem)));
-        when(userRepository.findById(anyLong())).thenReturn((Optional.of(user)));
+        when(userExistenceIndex.exists(anyLong())).thenReturn(true);
         List<ItemDtoResponse> items = itemService.getAllUserItems(1, 0, 10);
 
         assertEquals(2, items.size());
@@ -166,4 +205,90 @@ class ItemServiceTest {
         assertEquals(items.get(1).getName(), newItem.getName());
     }
 
-}
\ No newline at end of file
+    @Test
+    void getPopularKeepsTrackerOrderTest() {
+        Item newItem = Item.builder().id(2L).name("Bag").description("New bag")
+                .available(true).owner(toUser(userDto)).build();
+        when(popularityTracker.top(10)).thenReturn(of(2L, 1L, 3L));
+        when(itemRepository.findAllById(of(2L, 1L, 3L))).thenReturn(of(item, newItem));
+        when(userExistenceIndex.exists(anyLong())).thenReturn(true);
+        List<ItemDtoRequest> popular = itemService.getPopular(10);
+
+        assertEquals(2, popular.size());
+        assertEquals(newItem.getId(), popular.get(0).getId());
+        assertEquals(item.getId(), popular.get(1).getId());
+    }
+
+    @Test
+    void getRelatedTest() {
+        Item newItem = Item.builder().id(2L).name("Bag").description("New bag")
+                .available(true).owner(toUser(userDto)).build();
+        when(itemRepository.existsById(1L)).thenReturn(true);
+        when(coBookingIndex.related(1L)).thenReturn(new long[]{2L, 3L});
+        when(itemRepository.findAllById(of(2L))).thenReturn(of(newItem));
+        when(userExistenceIndex.exists(anyLong())).thenReturn(true);
+        List<ItemDtoRequest> related = itemService.getRelated(1L, 1);
+
+        assertEquals(1, related.size());
+        assertEquals(newItem.getId(), related.get(0).getId());
+    }
+
+    @Test
+    void getRelatedForUnknownItemTest() {
+        when(itemRepository.existsById(999L)).thenReturn(false);
+        Exception exception = assertThrows(EntityNotFoundException.class,
+                () -> itemService.getRelated(999L, 10));
+
+        assertEquals("Вещь с id 999 не существует", exception.getMessage());
+    }
+
+    @Test
+    void addCommentAsyncReturnsProvisionalIdTest() {
+        CommentDtoRequest commentDto = CommentDtoRequest.builder().text("quick").build();
+        when(itemRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(completedBookingIndex.hasCompletedBooking(anyLong(), anyLong(), any())).thenReturn(true);
+        when(commentWriter.nextProvisionalId()).thenReturn(-1L);
+        when(commentWriter.enqueue(any())).thenReturn(true);
+        CommentDtoResponse response = itemService.addCommentAsync(1L, 1L, commentDto);
+
+        assertEquals(-1L, response.getId());
+        assertEquals(user.getName(), response.getAuthorName());
+        verify(commentRepository, never()).save(any());
+    }
+
+    @Test
+    void addCommentAsyncSavesSynchronouslyWhenQueueIsFullTest() {
+        CommentDtoRequest commentDto = CommentDtoRequest.builder().text("quick").build();
+        Comment comment = Comment.builder().id(5L).text(commentDto.getText()).item(item)
+                .author(user).created(now()).build();
+        when(itemRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(completedBookingIndex.hasCompletedBooking(anyLong(), anyLong(), any())).thenReturn(true);
+        when(commentWriter.enqueue(any())).thenReturn(false);
+        when(commentRepository.save(any())).thenReturn(comment);
+        CommentDtoResponse response = itemService.addCommentAsync(1L, 1L, commentDto);
+
+        assertEquals(5L, response.getId());
+    }
+
+    @Test
+    void addCommentAsyncWithoutBookingTest() {
+        CommentDtoRequest commentDto = CommentDtoRequest.builder().text("quick").build();
+        when(itemRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(completedBookingIndex.hasCompletedBooking(anyLong(), anyLong(), any())).thenReturn(false);
+
+        assertThrows(ValidationException.class, () -> itemService.addCommentAsync(1L, 1L, commentDto));
+        verify(commentWriter, never()).enqueue(any());
+    }
+
+    @Test
+    void saveSuggestsItemToOpenRequestsTest() {
+        when(openRequestIndex.match(anyString(), anyLong())).thenReturn(of(7L));
+        saveItemDto();
+
+        verify(requestSuggestionRepository).saveAll(argThat(suggestions -> suggestions.iterator().hasNext()));
+        verify(itemRequestRepository).getReferenceById(7L);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.exception.EntityNotFoundException;
 import ru.practicum.shareit.request.dto.RequestItemRequestDto;
 import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
@@ -25,6 +26,7 @@ import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ItemRequestController.class)
@@ -193,6 +195,32 @@ class ItemRequestControllerTest {
         Mockito.verifyNoMoreInteractions(itemRequestService);
     }
 
+    @Test
+    void getAllItemRequestsAfterCursor() throws Exception {
+        long userId = 1L;
+        LocalDateTime created = LocalDateTime.of(2023, 1, 2, 10, 30, 15);
+        List<ResponseItemRequestDto> requestDtos = List.of(ResponseItemRequestDto.builder()
+                .id(3L)
+                .description("Запрос 3")
+                .created(created.minusHours(1))
+                .items(List.of())
+                .build());
+
+        when(itemRequestService.findAllBefore(userId, created, 4L, 10)).thenReturn(requestDtos);
+
+        mvc.perform(get("/requests/all")
+                        .header("X-Sharer-User-Id", userId)
+                        .param("afterCreated", "2023-01-02T10:30:15")
+                        .param("afterId", "4")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(3L), Long.class));
+
+        Mockito.verify(itemRequestService, Mockito.times(1)).findAllBefore(userId, created, 4L, 10);
+        Mockito.verifyNoMoreInteractions(itemRequestService);
+    }
+
     @Test
     void getItemRequest() throws Exception {
         Long requestId = 1L;
@@ -285,4 +313,16 @@ class ItemRequestControllerTest {
                 .getById(requestId, userId);
         Mockito.verifyNoMoreInteractions(itemRequestService);
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamItemRequests() throws Exception {
+        when(itemRequestService.subscribe(1L)).thenReturn(new SseEmitter());
+
+        mvc.perform(get("/requests/stream")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        Mockito.verify(itemRequestService, Mockito.times(1)).subscribe(1L);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.shareit.request.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнение OFFSET и курсорной пагинации ленты GET /requests/all на большой таблице.
+ * Запуск: mvn test -Pbenchmark (по умолчанию 10 млн строк, меньше — через -Dshareit.benchmark.requests).
+ * Курсорная страница на каждой глубине должна совпадать со страницей OFFSET на той же позиции.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItemRequestPagingBenchmarkTest {
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH = 10_000;
+    private static final int ROUNDS = 20;
+
+    private final int total = Integer.getInteger("shareit.benchmark.requests", 10_000_000);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ItemRequestFeedRepository itemRequestFeedRepository;
+    private long requesterId;
+    private long readerId;
+
+    @BeforeAll
+    void fill() {
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('requester', 'requester@bench.ru')");
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('reader', 'reader@bench.ru')");
+        requesterId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'requester@bench.ru'", Long.class);
+        readerId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'reader@bench.ru'", Long.class);
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        for (int from = 0; from < total; from += BATCH) {
+            List<Object[]> rows = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(total, from + BATCH); i++) {
+                rows.add(new Object[]{"request " + i, requesterId, Timestamp.valueOf(start.plusSeconds(i / 2))});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO requests (description, requester_id, created) VALUES (?, ?, ?)", rows);
+        }
+        jdbcTemplate.execute("ANALYZE");
+        log.info("Benchmark: вставлено {} запросов", total);
+    }
+
+    @Test
+    void keysetPageLatencyDoesNotDependOnDepth() {
+        int[] depths = {0, total / 100, total / 10, total / 2, total - PAGE_SIZE};
+        for (int position : depths) {
+            int depth = position / PAGE_SIZE * PAGE_SIZE;
+            long offsetNanos = measure(() -> itemRequestFeedRepository.findAllByRequesterIdIsNot(readerId, depth,
+                    PAGE_SIZE));
+            // курсор — последняя строка предыдущей страницы; для первой страницы граница правее всех строк
+            ResponseItemRequestDto cursor = depth == 0
+                    ? ResponseItemRequestDto.builder().created(LocalDateTime.now().plusYears(1)).id(Long.MAX_VALUE)
+                    .build()
+                    : itemRequestFeedRepository.findAllByRequesterIdIsNot(readerId, depth - 1, 1).get(0);
+            long keysetNanos = measure(() -> itemRequestFeedRepository.findAllByRequesterIdIsNotBefore(readerId,
+                    cursor.getCreated(), cursor.getId(), PAGE_SIZE));
+            log.info("Benchmark: rows={} depth={} offset={} us keyset={} us", total, depth,
+                    offsetNanos / 1000, keysetNanos / 1000);
+
+            List<Long> expected = ids(itemRequestFeedRepository.findAllByRequesterIdIsNot(readerId, depth, PAGE_SIZE));
+            assertEquals(PAGE_SIZE, expected.size());
+            assertEquals(expected, ids(itemRequestFeedRepository.findAllByRequesterIdIsNotBefore(readerId,
+                    cursor.getCreated(), cursor.getId(), PAGE_SIZE)));
+        }
+    }
+
+    private static List<Long> ids(List<ResponseItemRequestDto> requests) {
+        return requests.stream().map(ResponseItemRequestDto::getId).collect(Collectors.toList());
+    }
+
+    private long measure(Runnable query) {
+        query.run();
+        long started = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            query.run();
+        }
+        return (System.nanoTime() - started) / ROUNDS;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.practicum.shareit.request.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemRequestBroadcasterTest {
+    private static final long REQUESTER_ID = 1L;
+    private static final long OWNER_ID = 2L;
+
+    private final ItemRequestBroadcaster broadcaster = new ItemRequestBroadcaster(
+            3, Duration.ofMinutes(1), 1, Duration.ofSeconds(5), Duration.ofHours(1));
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.stop();
+    }
+
+    @Test
+    void shouldSendNewRequestsToOtherSubscribers() throws InterruptedException {
+        RecordingEmitter requester = new RecordingEmitter(null);
+        RecordingEmitter owner = new RecordingEmitter(null);
+        broadcaster.subscribe(REQUESTER_ID, requester);
+        broadcaster.subscribe(OWNER_ID, owner);
+
+        broadcaster.publish(REQUESTER_ID, request(10L));
+        broadcaster.publish(OWNER_ID, request(11L));
+
+        assertTrue(owner.await(1));
+        assertTrue(requester.await(1));
+        assertEquals(List.of(10L), owner.received);
+        assertEquals(List.of(11L), requester.received);
+    }
+
+    @Test
+    void shouldDropOldestRequestsForSlowSubscriber() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter owner = new RecordingEmitter(release);
+        broadcaster.subscribe(OWNER_ID, owner);
+
+        broadcaster.publish(REQUESTER_ID, request(1L));
+        assertTrue(owner.await(1));
+        for (long id = 2; id <= 6; id++) {
+            broadcaster.publish(REQUESTER_ID, request(id));
+        }
+        release.countDown();
+
+        assertTrue(owner.await(4));
+        assertEquals(List.of(1L, 4L, 5L, 6L), owner.received);
+    }
+
+    @Test
+    void shouldDisconnectStuckSubscriberWithoutDelayingOthers() throws InterruptedException {
+        ItemRequestBroadcaster strict = new ItemRequestBroadcaster(
+                3, Duration.ofMinutes(1), 1, Duration.ofMillis(100), Duration.ofHours(1));
+        CountDownLatch never = new CountDownLatch(1);
+        RecordingEmitter stuck = new RecordingEmitter(never, 10_000);
+        RecordingEmitter owner = new RecordingEmitter(null);
+        try {
+            strict.subscribe(OWNER_ID, stuck);
+            strict.subscribe(OWNER_ID + 1, owner);
+
+            strict.publish(REQUESTER_ID, request(10L));
+            strict.publish(REQUESTER_ID, request(11L));
+
+            assertTrue(owner.await(2));
+            assertEquals(List.of(10L, 11L), owner.received);
+            assertEquals(List.of(10L), stuck.received);
+            for (int i = 0; i < 100 && strict.subscriberCount() > 1; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, strict.subscriberCount());
+        } finally {
+            never.countDown();
+            strict.stop();
+        }
+    }
+
+    @Test
+    void shouldRemoveDisconnectedSubscriber() throws InterruptedException {
+        RecordingEmitter owner = new RecordingEmitter(null);
+        owner.failing = true;
+        broadcaster.subscribe(OWNER_ID, owner);
+
+        broadcaster.publish(REQUESTER_ID, request(10L));
+
+        for (int i = 0; i < 100 && broadcaster.subscriberCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    private ResponseItemRequestDto request(long id) {
+        return ResponseItemRequestDto.builder().id(id).description("request " + id).items(List.of()).build();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<Long> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private final long holdMillis;
+        private volatile boolean failing;
+
+        RecordingEmitter(CountDownLatch release) {
+            this(release, 1000);
+        }
+
+        RecordingEmitter(CountDownLatch release, long holdMillis) {
+            this.release = release;
+            this.holdMillis = holdMillis;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            for (DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof ResponseItemRequestDto) {
+                    received.add(((ResponseItemRequestDto) data.getData()).getId());
+                }
+            }
+            if (release != null) {
+                try {
+                    release.await(holdMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        boolean await(int count) throws InterruptedException {
+            for (int i = 0; i < 100 && received.size() < count; i++) {
+                Thread.sleep(10);
+            }
+            return received.size() == count;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.shareit.request.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import ru.practicum.shareit.request.dto.ItemRequestFeedEntry;
+import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
+import ru.practicum.shareit.request.repository.ItemRequestFeedRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ItemRequestFeedCacheTest {
+    private static final long REQUESTER_ID = 1L;
+    private static final long OWNER_ID = 2L;
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 1, 2, 10, 0);
+
+    @Mock
+    private ItemRequestFeedRepository feedRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private MeterRegistry meterRegistry;
+    private ItemRequestFeedCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ItemRequestFeedCache(feedRepository, meterRegistry, transactionManager, 4, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldServePagesWithoutOwnRequests() {
+        when(feedRepository.findNewest(4)).thenReturn(List.of(
+                entry(4L, OWNER_ID), entry(3L, REQUESTER_ID), entry(2L, OWNER_ID)));
+
+        assertEquals(List.of(3L), ids(cache.findAll(OWNER_ID, 0, 10)));
+        assertEquals(List.of(4L), ids(cache.findAll(REQUESTER_ID, 0, 1)));
+        assertEquals(List.of(2L), ids(cache.findAll(REQUESTER_ID, 1, 1)));
+        assertEquals(List.of(2L), ids(cache.findAllBefore(REQUESTER_ID, NOW.minusMinutes(3), 3L, 10)));
+
+        verify(feedRepository, times(1)).findNewest(4);
+        assertEquals(4.0, meterRegistry.counter("shareit.requests.feed.cache", "result", "hit").count());
+    }
+
+    @Test
+    void shouldMissWhenSnapshotIsTooShort() {
+        when(feedRepository.findNewest(4)).thenReturn(List.of(
+                entry(4L, OWNER_ID), entry(3L, REQUESTER_ID), entry(2L, OWNER_ID), entry(1L, REQUESTER_ID)));
+
+        assertEquals(List.of(4L, 2L), ids(cache.findAll(REQUESTER_ID, 0, 2)));
+        assertTrue(cache.findAll(REQUESTER_ID, 2, 2).isEmpty());
+        assertEquals(1.0, meterRegistry.counter("shareit.requests.feed.cache", "result", "miss").count());
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        when(feedRepository.findNewest(4))
+                .thenReturn(List.of(entry(1L, OWNER_ID)))
+                .thenReturn(List.of(entry(2L, OWNER_ID), entry(1L, OWNER_ID)));
+
+        assertEquals(List.of(1L), ids(cache.findAll(REQUESTER_ID, 0, 10)));
+        cache.invalidate();
+        assertEquals(List.of(2L, 1L), ids(cache.findAll(REQUESTER_ID, 0, 10)));
+
+        verify(feedRepository, times(2)).findNewest(4);
+    }
+
+    @Test
+    void shouldReloadExpiredSnapshotInOwnWriteTransaction() {
+        ItemRequestFeedCache expiring = new ItemRequestFeedCache(
+                feedRepository, meterRegistry, transactionManager, 4, Duration.ZERO);
+        when(feedRepository.findNewest(4))
+                .thenReturn(List.of(entry(1L, OWNER_ID)))
+                .thenReturn(List.of(entry(2L, OWNER_ID), entry(1L, OWNER_ID)));
+
+        assertEquals(List.of(1L), ids(expiring.findAll(REQUESTER_ID, 0, 10)));
+        assertEquals(List.of(2L, 1L), ids(expiring.findAll(REQUESTER_ID, 0, 10)));
+
+        verify(feedRepository, times(2)).findNewest(4);
+        verify(transactionManager, times(2)).getTransaction(argThat(definition -> !definition.isReadOnly()
+                && definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    private ItemRequestFeedEntry entry(long id, long requesterId) {
+        return new ItemRequestFeedEntry(requesterId, ResponseItemRequestDto.builder()
+                .id(id)
+                .description("request " + id)
+                .created(NOW.minusMinutes(5 - id))
+                .items(List.of())
+                .build());
+    }
+
+    private List<Long> ids(Optional<List<ResponseItemRequestDto>> page) {
+        return page.orElseThrow().stream().map(ResponseItemRequestDto::getId).collect(Collectors.toList());
+    }
+}
@@ -7,6 +7,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import ru.practicum.shareit.exception.EntityNotFoundException;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.dto.ItemDtoResponse;
+import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.request.dto.RequestItemRequestDto;
 import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
 import ru.practicum.shareit.request.model.ItemRequest;
@@ -31,6 +34,7 @@ class ItemRequestServiceImplTest {
     private final ItemRequestService itemRequestService;
     private final EntityManager entityManager;
     private final UserService userService;
+    private final ItemService itemService;
     private RequestItemRequestDto itemRequestDto;
     private UserDto user;
 
@@ -127,4 +131,62 @@ class ItemRequestServiceImplTest {
         assertThat(allItemRequests.get(0).getId(), equalTo(itemRequests.get(0).getId()));
         assertThat(allItemRequests.size(), equalTo(itemRequests.size()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllItemRequestsWithCursorTest() {
+        saveItemRequests();
+        itemRequestService.create(RequestItemRequestDto.builder().description("bike").build(), user.getId());
+        UserDto userDto = userService.create(UserDto.builder().name("Tolik").email("to@mail.com").build());
+        List<ResponseItemRequestDto> firstPage = itemRequestService.findAll(userDto.getId(), 0, 2);
+        ResponseItemRequestDto last = firstPage.get(firstPage.size() - 1);
+        List<ResponseItemRequestDto> secondPage = itemRequestService.findAllBefore(userDto.getId(),
+                last.getCreated(), last.getId(), 2);
+
+        assertThat(firstPage.size(), equalTo(2));
+        assertThat(secondPage.size(), equalTo(1));
+        assertThat(secondPage.get(0).getDescription(), equalTo("ship"));
+    }
+
+    @Test
+    void getAllItemRequestsWithItemsTest() {
+        ResponseItemRequestDto ship = itemRequestService.create(
+                RequestItemRequestDto.builder().description("ship").build(), user.getId());
+        ResponseItemRequestDto car = itemRequestService.create(
+                RequestItemRequestDto.builder().description("car").build(), user.getId());
+        UserDto owner = userService.create(UserDto.builder().name("Tolik").email("to@mail.com").build());
+        itemService.create(ItemDtoRequest.builder().name("Boat").description("Small boat").available(true)
+                .requestId(ship.getId()).build(), owner.getId());
+        itemService.create(ItemDtoRequest.builder().name("Yacht").description("Big yacht").available(false)
+                .requestId(ship.getId()).build(), owner.getId());
+
+        List<ResponseItemRequestDto> own = itemRequestService.findAllByUserId(user.getId());
+        List<ResponseItemRequestDto> others = itemRequestService.findAll(owner.getId(), 0, 10);
+
+        assertThat(own.size(), equalTo(2));
+        assertThat(own.get(0).getId(), equalTo(car.getId()));
+        assertThat(own.get(0).getItems().size(), equalTo(0));
+        assertThat(own.get(1).getItems().size(), equalTo(2));
+        assertThat(own.get(1).getItems().get(0).getName(), equalTo("Boat"));
+        assertThat(own.get(1).getItems().get(1).getAvailable(), equalTo(false));
+        assertThat(own.get(1).getItems().get(1).getRequestId(), equalTo(ship.getId()));
+        assertThat(others, equalTo(own));
+    }
+
+    @Test
+    void getOwnItemRequestsWithSuggestionsTest() {
+        ResponseItemRequestDto ladder = itemRequestService.create(
+                RequestItemRequestDto.builder().description("tall ladder").build(), user.getId());
+        UserDto owner = userService.create(UserDto.builder().name("Sema").email("se@mail.com").build());
+        ItemDtoResponse stepladder = itemService.create(ItemDtoRequest.builder().name("Stepladder")
+                .description("tall stepladder").available(true).build(), owner.getId());
+        // запрос еще не закоммичен, но подбор дочитывает новые открытые запросы из БД перед поиском
+
+        List<ResponseItemRequestDto> own = itemRequestService.findAllByUserId(user.getId());
+
+        assertThat(own.size(), equalTo(1));
+        assertThat(own.get(0).getItems().size(), equalTo(0));
+        assertThat(own.get(0).getSuggestions().size(), equalTo(1));
+        assertThat(own.get(0).getSuggestions().get(0).getId(), equalTo(stepladder.getId()));
+        assertThat(own.get(0).getSuggestions().get(0).getRequestId(), equalTo(null));
+    }
+}
@@ -10,10 +10,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.shareit.exception.EntityNotFoundException;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.dto.RequestItemRequestDto;
+import ru.practicum.shareit.request.repository.ItemRequestFeedRepository;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.request.repository.RequestSuggestionRepository;
 
-import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistenceIndex;
 
 import java.util.Optional;
 
@@ -33,20 +35,34 @@ class ItemRequestServiceTest {
     @Mock
     UserRepository userRepository;
     @Mock
+    UserExistenceIndex userExistenceIndex;
+    @Mock
     ItemRepository itemRepository;
+    @Mock
+    RequestSuggestionRepository requestSuggestionRepository;
+    @Mock
+    OpenRequestIndex openRequestIndex;
+    @Mock
+    ItemRequestFeedRepository itemRequestFeedRepository;
+    @Mock
+    ItemRequestBroadcaster itemRequestBroadcaster;
+    @Mock
+    ItemRequestFeedCache itemRequestFeedCache;
 
     ItemRequestService itemRequestService;
 
     @BeforeEach
     void setUp() {
-        itemRequestService = new ItemRequestServiceImpl(userRepository, itemRepository, itemRequestRepository);
+        itemRequestService = new ItemRequestServiceImpl(userRepository, userExistenceIndex, itemRepository, itemRequestRepository,
+                requestSuggestionRepository, openRequestIndex, itemRequestFeedRepository,
+                itemRequestBroadcaster, itemRequestFeedCache);
         request = RequestItemRequestDto.builder().description("description").build();
     }
 
 
     @Test
     void createItemRequestWhenUserNotExistsThenThrowException() {
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(false);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -54,14 +70,14 @@ class ItemRequestServiceTest {
         );
 
         assertEquals("Пользователь с id " + USER_ID + " не существует", exception.getMessage());
-        Mockito.verify(userRepository, Mockito.times(1))
-                .findById(USER_ID);
-        Mockito.verifyNoMoreInteractions(userRepository);
+        Mockito.verify(userExistenceIndex, Mockito.times(1))
+                .exists(USER_ID);
+        Mockito.verifyNoInteractions(userRepository);
     }
 
     @Test
     void findAllByRequesterIdWhenUserNotExistsThenThrowException() {
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(false);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -69,14 +85,14 @@ class ItemRequestServiceTest {
         );
 
         assertEquals("Пользователь с id " + USER_ID + " не существует", exception.getMessage());
-        Mockito.verify(userRepository, Mockito.times(1))
-                .findById(USER_ID);
-        Mockito.verifyNoMoreInteractions(userRepository);
+        Mockito.verify(userExistenceIndex, Mockito.times(1))
+                .exists(USER_ID);
+        Mockito.verifyNoInteractions(userRepository);
     }
 
     @Test
     void findAllWhenUserNotExistsThenThrowException() {
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(false);
 
         int from = 0;
         int size = 10;
@@ -86,14 +102,14 @@ class ItemRequestServiceTest {
         );
 
         assertEquals("Пользователь с id " + USER_ID + " не существует", exception.getMessage());
-        Mockito.verify(userRepository, Mockito.times(1))
-                .findById(USER_ID);
-        Mockito.verifyNoMoreInteractions(userRepository);
+        Mockito.verify(userExistenceIndex, Mockito.times(1))
+                .exists(USER_ID);
+        Mockito.verifyNoInteractions(userRepository);
     }
 
     @Test
     void getByIdWhenUserNotExistsThenThrowException() {
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.empty());
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(false);
 
         final EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
@@ -101,15 +117,14 @@ class ItemRequestServiceTest {
         );
 
         assertEquals("Пользователь с id " + USER_ID + " не существует", exception.getMessage());
-        Mockito.verify(userRepository, Mockito.times(1))
-                .findById(USER_ID);
-        Mockito.verifyNoMoreInteractions(userRepository);
+        Mockito.verify(userExistenceIndex, Mockito.times(1))
+                .exists(USER_ID);
+        Mockito.verifyNoInteractions(userRepository);
     }
 
     @Test
     void getByIdWhenItemRequestNotExistsThenThrowException() {
-        User user = User.builder().build();
-        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(user));
+        when(userExistenceIndex.exists(USER_ID)).thenReturn(true);
 
         when(itemRequestRepository.findById(REQUEST_ID)).thenReturn(Optional.empty());
 
@@ -119,11 +134,11 @@ class ItemRequestServiceTest {
         );
 
         assertEquals("Запрос с id " + REQUEST_ID + " не существует", exception.getMessage());
-        Mockito.verify(userRepository, Mockito.times(1))
-                .findById(USER_ID);
+        Mockito.verify(userExistenceIndex, Mockito.times(1))
+                .exists(USER_ID);
         Mockito.verify(itemRequestRepository, Mockito.times(1))
                 .findById(REQUEST_ID);
-        Mockito.verifyNoMoreInteractions(userRepository);
+        Mockito.verifyNoInteractions(userRepository);
         Mockito.verifyNoMoreInteractions(itemRequestRepository);
     }
 }
\ No newline at end of file
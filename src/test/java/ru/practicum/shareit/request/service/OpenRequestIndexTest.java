@@ -0,0 +1,80 @@
+package ru.practicum.shareit.request.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OpenRequestIndexTest {
+    private static final long REQUESTER_ID = 1L;
+    private static final long OWNER_ID = 2L;
+
+    @Mock
+    private ItemRequestRepository itemRequestRepository;
+
+    @Test
+    void shouldMatchItemTextToOpenRequests() {
+        OpenRequestIndex index = loadedIndex(
+                request(10L, "Нужна дрель"),
+                request(11L, "Палатку на выходные"),
+                request(12L, "Аккумуляторная дрель")
+        );
+
+        assertEquals(List.of(12L, 10L), index.match("Дрель аккумуляторная Bosch", OWNER_ID));
+        assertEquals(List.of(11L), index.match("Палатка", OWNER_ID));
+        assertTrue(index.match("Велосипед", OWNER_ID).isEmpty());
+    }
+
+    @Test
+    void shouldNotSuggestOwnRequestsAndClosedRequests() {
+        OpenRequestIndex index = loadedIndex(request(10L, "дрель"), request(11L, "дрель ударная"));
+
+        assertTrue(index.match("дрель", REQUESTER_ID).isEmpty());
+        index.close(10L);
+        assertEquals(List.of(11L), index.match("дрель", OWNER_ID));
+    }
+
+    @Test
+    void shouldIndexNewRequests() {
+        OpenRequestIndex index = loadedIndex();
+        index.add(request(20L, "большой зонт"));
+
+        assertEquals(List.of(20L), index.match("Зонт большой, черный", OWNER_ID));
+    }
+
+    @Test
+    void shouldPickUpRequestsCreatedByOtherInstances() {
+        OpenRequestIndex index = loadedIndex(request(10L, "дрель"));
+        ItemRequest remote = request(30L, "ударная дрель");
+        when(itemRequestRepository.findAllOpenCreatedAfter(any())).thenReturn(List.of(remote, request(10L, "дрель")));
+
+        index.poll();
+
+        assertEquals(List.of(10L, 30L), index.match("дрель", OWNER_ID));
+    }
+
+    private OpenRequestIndex loadedIndex(ItemRequest... requests) {
+        when(itemRequestRepository.findAllOpen()).thenReturn(List.of(requests));
+        OpenRequestIndex index = new OpenRequestIndex(itemRequestRepository, 0.5, 5, Duration.ofSeconds(10));
+        index.load();
+        return index;
+    }
+
+    private ItemRequest request(long id, String description) {
+        return ItemRequest.builder().id(id).description(description).created(LocalDateTime.now())
+                .requester(User.builder().id(REQUESTER_ID).build()).build();
+    }
+}
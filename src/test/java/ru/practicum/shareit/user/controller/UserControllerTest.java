@@ -5,22 +5,34 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.practicum.shareit.exception.EntityNotFoundException;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportError;
+import ru.practicum.shareit.user.dto.UserImportProgress;
+import ru.practicum.shareit.user.service.UserImporter;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -33,6 +45,8 @@ class UserControllerTest {
             .build();
     @MockBean
     UserService userService;
+    @MockBean
+    UserImporter userImporter;
     @Autowired
     ObjectMapper mapper;
     @Autowired
@@ -111,6 +125,23 @@ class UserControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shouldAnswerConflictOnlyForDuplicateEmail() throws Exception {
+        when(userService.create(any()))
+                .thenThrow(new DataIntegrityViolationException("insert",
+                        new SQLException("duplicate key value violates unique constraint \"uc_users_email\"")))
+                .thenThrow(new DataIntegrityViolationException("insert",
+                        new SQLException("null value in column \"name\" violates not-null constraint")));
+        for (int expected : new int[]{409, 500}) {
+            mvc.perform(post("/users")
+                            .content(mapper.writeValueAsString(userDto))
+                            .contentType(APPLICATION_JSON)
+                            .characterEncoding(UTF_8)
+                            .accept(APPLICATION_JSON))
+                    .andExpect(status().is(expected));
+        }
+    }
+
     @Test
     void shouldNotGetUserWhenNotFoundExceptionTest() throws Exception {
         when(userService.getUser(any()))
@@ -130,4 +161,57 @@ class UserControllerTest {
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void shouldGetPageTest() throws Exception {
+        when(userService.getUsers(5L, 2)).thenReturn(List.of(userDto));
+        mvc.perform(get("/users")
+                        .param("afterId", "5")
+                        .param("size", "2"))
+                .andExpect(jsonPath("$[0].id", is(userDto.getId()), Long.class))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(status().isOk());
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void shouldStreamAllAsNdjsonTest() throws Exception {
+        UserDto other = UserDto.builder().id(2L).name("Anna").email("anna@mail.com").build();
+        when(userService.streamAllUsers(any())).thenAnswer(invocation -> {
+            Consumer<UserDto> action = invocation.getArgument(0);
+            action.accept(userDto);
+            action.accept(other);
+            return 2L;
+        });
+        MvcResult result = mvc.perform(get("/users").accept(UserController.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(UTF_8);
+
+        assertEquals(mapper.writeValueAsString(userDto) + "\n" + mapper.writeValueAsString(other) + "\n", body);
+    }
+
+    @Test
+    void shouldStreamImportReportTest() throws Exception {
+        UserImportError error = new UserImportError(3, "email must be a well-formed email address");
+        UserImportProgress done = new UserImportProgress(2, 1, 1, true);
+        when(userImporter.importUsers(any(), eq(UserImporter.Format.CSV), any())).thenAnswer(invocation -> {
+            UserImporter.Listener listener = invocation.getArgument(2);
+            listener.onError(error);
+            listener.onProgress(done);
+            return done;
+        });
+
+        String body = mvc.perform(post("/users/import")
+                        .content("name,email\nMichael,michael@mail.com\nAnna,anna\n")
+                        .contentType(UserController.TEXT_CSV)
+                        .accept(UserController.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(UTF_8);
+
+        assertEquals(mapper.writeValueAsString(error) + "\n" + mapper.writeValueAsString(done) + "\n", body);
+    }
 }
@@ -0,0 +1,70 @@
+package ru.practicum.shareit.user.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApp;
+import ru.practicum.shareit.exception.EntityNotFoundException;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Два экземпляра приложения против одной базы: удаление пользователя на одном узле
+ * другой узел видит не позже ttl индекса существования.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserCrossNodeTest {
+    private static final long TTL_MILLIS = 200;
+
+    private ConfigurableApplicationContext first;
+    private ConfigurableApplicationContext second;
+
+    @BeforeAll
+    void start() {
+        first = node("first");
+        second = node("second");
+    }
+
+    @AfterAll
+    void stop() {
+        second.close();
+        first.close();
+    }
+
+    @Test
+    void userDeletedOnOneNodeIsRejectedOnTheOther() throws InterruptedException {
+        long userId = first.getBean(UserService.class).create(UserDto.builder().name("leaving")
+                .email("leaving@nodes.ru").build()).getId();
+        UserExistenceIndex secondIndex = second.getBean(UserExistenceIndex.class);
+        assertTrue(secondIndex.exists(userId));
+
+        first.getBean(UserService.class).deleteUserById(userId);
+        Thread.sleep(TTL_MILLIS * 2);
+
+        assertFalse(secondIndex.exists(userId));
+        assertThrows(EntityNotFoundException.class, () -> second.getBean(ItemService.class).create(
+                ItemDtoRequest.builder().name("kayak").description("kayak").available(true).build(), userId));
+    }
+
+    // у каждого узла свой менеджер кеша второго уровня: общий менеджер JCache по умолчанию закрылся бы
+    // вместе с узлом и сломал контексты других тестов, а узлы видели бы кеш друг друга
+    private ConfigurableApplicationContext node(String name) {
+        return new SpringApplicationBuilder(ShareItApp.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:nodes",
+                        "--spring.jpa.properties.hibernate.javax.cache.uri=file:/shareit/nodes/" + name,
+                        "--shareit.users.existence.ttl=" + TTL_MILLIS + "ms",
+                        "--shareit.users.purge.enabled=false",
+                        "--shareit.bookings.approval.enabled=false",
+                        "--shareit.bookings.archive.enabled=false");
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.user.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.repository.UserExportRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserEmailIndexTest {
+
+    @Mock
+    private UserExportRepository userExportRepository;
+    @Mock
+    private UserRepository userRepository;
+    private UserEmailIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserEmailIndex(userExportRepository, userRepository);
+        when(userExportRepository.forEachWithDeleted(any())).thenAnswer(invocation -> {
+            Consumer<UserDto> action = invocation.getArgument(0);
+            action.accept(UserDto.builder().id(1L).name("Nik").email("Nik@mail.com").build());
+            return 1L;
+        });
+        index.load();
+    }
+
+    @Test
+    void shouldRejectNormalizedDuplicatesConfirmedByDatabase() {
+        when(userRepository.existsByEmailKeyAndIdNot("nik@mail.com", 0)).thenReturn(true);
+        when(userRepository.existsByEmailKeyAndIdNot("nik@mail.com", 2L)).thenReturn(true);
+
+        assertThrows(ConflictException.class, () -> index.reserve("nik@mail.com", null));
+        assertThrows(ConflictException.class, () -> index.reserve("  NIK@MAIL.COM ", 2L));
+        assertEquals(0, index.reserve("nik@MAIL.com", 1L));
+    }
+
+    @Test
+    void shouldLetDatabaseDecideWhenHintIsStale() {
+        when(userRepository.existsByEmailKeyAndIdNot("nik@mail.com", 0)).thenReturn(false);
+
+        long reservation = index.reserve("Nik@mail.com", null);
+        assertTrue(reservation < 0);
+
+        index.confirm("Nik@mail.com", reservation, 2L);
+        assertEquals(0, index.reserve("nik@mail.com", 2L));
+    }
+
+    @Test
+    void shouldReserveAndConfirmNewEmail() {
+        long reservation = index.reserve("ann@mail.com", null);
+        assertTrue(reservation < 0);
+
+        index.confirm("ann@mail.com", reservation, 2L);
+        assertEquals(0, index.reserve("Ann@mail.com", 2L));
+    }
+
+    @Test
+    void shouldReleaseOldEmailAfterChangeAndDelete() {
+        long reservation = index.reserve("nikolay@mail.com", 1L);
+        index.confirm("nikolay@mail.com", reservation, 1L);
+
+        assertTrue(index.reserve("nik@mail.com", 3L) < 0);
+        index.onDeleted(1L);
+        assertTrue(index.reserve("nikolay@mail.com", 4L) < 0);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.shareit.user.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.user.repository.UserExportRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserExistenceIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UserExportRepository userExportRepository;
+    private UserExistenceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserExistenceIndex(userRepository, userExportRepository, Duration.ofHours(1));
+        when(userExportRepository.forEachId(any())).thenAnswer(invocation -> {
+            LongConsumer action = invocation.getArgument(0);
+            action.accept(1L);
+            action.accept(3L);
+            return 2L;
+        });
+        when(userExportRepository.forEachDeletedId(any())).thenAnswer(invocation -> {
+            LongConsumer action = invocation.getArgument(0);
+            action.accept(6L);
+            return 1L;
+        });
+        index.load();
+    }
+
+    @Test
+    void shouldAnswerLoadedUsersWithoutQuery() {
+        assertTrue(index.exists(1L));
+        assertTrue(index.exists(3L));
+
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    void shouldFallBackToQueryOnMiss() {
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(userRepository.existsById(4L)).thenReturn(false);
+
+        assertTrue(index.exists(2L));
+        assertTrue(index.exists(2L));
+        assertFalse(index.exists(4L));
+
+        verify(userRepository, times(1)).existsById(2L);
+    }
+
+    @Test
+    void shouldConfirmCachedUserAgainAfterTtl() {
+        UserExistenceIndex expiring = new UserExistenceIndex(userRepository, userExportRepository, Duration.ZERO);
+        expiring.load();
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertFalse(expiring.exists(1L));
+        assertFalse(expiring.exists(6L));
+        verify(userRepository, never()).existsById(6L);
+    }
+
+    @Test
+    void shouldTrackCreatedAndDeletedUsers() {
+        index.onCreated(5L);
+        index.onDeleted(1L);
+
+        assertTrue(index.exists(5L));
+        assertFalse(index.exists(1L));
+        assertFalse(index.exists(6L));
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    void shouldKeepUserWhenDeletionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            index.onDeleted(1L);
+            assertTrue(index.exists(1L));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(index.exists(1L));
+        verify(userRepository, never()).existsById(anyLong());
+    }
+}
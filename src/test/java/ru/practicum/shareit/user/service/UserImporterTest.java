@@ -0,0 +1,115 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportError;
+import ru.practicum.shareit.user.dto.UserImportProgress;
+
+import javax.transaction.Transactional;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Transactional
+@SpringBootTest(properties = "shareit.users.import.batch-size=2")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class UserImporterTest {
+    private final UserImporter userImporter;
+    private final UserService userService;
+    private final UserPurger userPurger;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<UserImportError> errors = new ArrayList<>();
+    private final List<UserImportProgress> progress = new ArrayList<>();
+
+    @Test
+    void shouldImportCsvAndReportErrors() throws IOException {
+        userService.create(UserDto.builder().name("Nik").email("nik@mail.com").build());
+        String csv = "name, email\n" +
+                "\"Roma, jr\",roma@mail.com\n" +
+                "Nik,NIK@mail.com\n" +
+                "\n" +
+                "Vlad,vlad@mail.com\n" +
+                "Vlad2,Vlad@mail.com\n" +
+                "Anna,anna\n" +
+                "Gena\n";
+
+        UserImportProgress result = importUsers(csv, UserImporter.Format.CSV);
+
+        assertEquals(new UserImportProgress(6, 2, 4, true), result);
+        assertEquals(List.of(3L, 6L, 7L, 8L), errors.stream().map(UserImportError::getLine)
+                .sorted().collect(Collectors.toList()));
+        assertEquals(List.of(false, false, true), progress.stream().map(UserImportProgress::isDone)
+                .collect(Collectors.toList()));
+        List<UserDto> users = userService.getAllUsers();
+        assertTrue(users.stream().anyMatch(user -> user.getName().equals("Roma, jr")));
+        assertTrue(users.stream().anyMatch(user -> user.getEmail().equals("vlad@mail.com")));
+        assertEquals(3, users.size());
+    }
+
+    @Test
+    void shouldImportNdjson() throws IOException {
+        String ndjson = "{\"id\":100,\"name\":\"Roma\",\"email\":\"roma@mail.com\"}\n" +
+                "{\"name\":\"Anna\"}\n" +
+                "{not json}\n";
+
+        UserImportProgress result = importUsers(ndjson, UserImporter.Format.NDJSON);
+
+        assertEquals(new UserImportProgress(3, 1, 2, true), result);
+        assertEquals(List.of(2L, 3L), errors.stream().map(UserImportError::getLine).collect(Collectors.toList()));
+        assertEquals("roma@mail.com", userService.getAllUsers().get(0).getEmail());
+    }
+
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    void shouldRejectDuplicateSavedByAnotherInstance() throws IOException {
+        // строка вставлена мимо UserEmailIndex, как если бы ее сохранил другой экземпляр
+        jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('Other', 'other@import.ru')");
+        try {
+            UserImportProgress result = importUsers("Copy, Other@Import.ru\nNew,new@import.ru\n",
+                    UserImporter.Format.CSV);
+
+            assertEquals(new UserImportProgress(2, 1, 1, true), result);
+            assertEquals(List.of(new UserImportError(1, "Пользователь с email Other@Import.ru уже существует")),
+                    errors);
+            assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM users WHERE email = 'new@import.ru'", Integer.class));
+        } finally {
+            jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@import.ru'");
+            userPurger.purgeDeleted();
+        }
+    }
+
+    @Test
+    void shouldParseQuotedCsv() {
+        UserDto user = UserImporter.parseCsv("\"Say \"\"hi\"\"\", hi@mail.com ");
+        assertEquals("Say \"hi\"", user.getName());
+        assertEquals("hi@mail.com", user.getEmail());
+        assertThrows(IllegalArgumentException.class, () -> UserImporter.parseCsv("\"Roma,roma@mail.com"));
+    }
+
+    private UserImportProgress importUsers(String text, UserImporter.Format format) throws IOException {
+        return userImporter.importUsers(new BufferedReader(new StringReader(text)), format,
+                new UserImporter.Listener() {
+                    @Override
+                    public void onError(UserImportError error) {
+                        errors.add(error);
+                    }
+
+                    @Override
+                    public void onProgress(UserImportProgress value) {
+                        progress.add(value);
+                    }
+                });
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.exception.EntityNotFoundException;
+import ru.practicum.shareit.item.dto.ItemDtoRequest;
+import ru.practicum.shareit.item.dto.ItemDtoResponse;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.request.dto.RequestItemRequestDto;
+import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// данные коммитятся, поэтому тест сам удаляет созданных пользователей через UserPurger
+@SpringBootTest(properties = {
+        "shareit.users.purge.enabled=false",
+        "shareit.users.purge.batch-size=2",
+        "shareit.users.purge.pause=0ms"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class UserPurgerTest {
+    private final UserService userService;
+    private final ItemService itemService;
+    private final ItemRequestService itemRequestService;
+    private final UserPurger userPurger;
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE email LIKE '%@purge.ru'");
+        userPurger.purgeDeleted();
+    }
+
+    @Test
+    void shouldHideDeletedUserAndPurgeInBatches() {
+        UserDto owner = userService.create(UserDto.builder().name("Owner").email("owner@purge.ru").build());
+        UserDto other = userService.create(UserDto.builder().name("Other").email("other@purge.ru").build());
+        ResponseItemRequestDto request = itemRequestService.create(
+                RequestItemRequestDto.builder().description("need a ladder").build(), owner.getId());
+        ItemDtoResponse answer = itemService.create(ItemDtoRequest.builder().name("ladder").description("tall ladder")
+                .available(true).requestId(request.getId()).build(), other.getId());
+        ItemDtoResponse item = null;
+        for (int i = 0; i < 5; i++) {
+            item = itemService.create(ItemDtoRequest.builder().name("drill " + i).description("purge drill")
+                    .available(true).build(), owner.getId());
+            insertBooking(other.getId(), item.getId(), i);
+            insertBooking(owner.getId(), answer.getId(), i);
+        }
+        jdbcTemplate.update("INSERT INTO comments (text, author_id, item_id, created) VALUES ('ok', ?, ?, ?)",
+                owner.getId(), answer.getId(), Timestamp.valueOf(LocalDateTime.now()));
+
+        userService.deleteUserById(owner.getId());
+
+        // до очистки комментарий удаленного автора остается в БД, но в карточке вещи не показывается
+        ItemDtoResponse answered = itemService.getItem(answer.getId(), other.getId());
+        assertEquals("ladder", answered.getName());
+        assertTrue(answered.getComments().isEmpty());
+        long itemId = item.getId();
+        assertThrows(EntityNotFoundException.class, () -> userService.getUser(owner.getId()));
+        assertThrows(EntityNotFoundException.class, () -> itemService.getItem(itemId, other.getId()));
+        assertTrue(itemService.search("purge drill", 0, 10).isEmpty());
+        assertTrue(itemRequestService.findAll(other.getId(), 0, 10).isEmpty());
+        assertThrows(EntityNotFoundException.class, () -> userService.deleteUserById(owner.getId()));
+
+        assertEquals(1, userPurger.purgeDeleted());
+
+        assertEquals(0, count("SELECT COUNT(*) FROM users WHERE id = ?", owner.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM items WHERE owner_id = ?", owner.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM bookings WHERE booker_id = ?", other.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM comments WHERE item_id = ?", answer.getId()));
+        assertNull(jdbcTemplate.queryForObject("SELECT request_id FROM items WHERE id = ?", Long.class,
+                answer.getId()));
+        assertEquals("ladder", itemService.getItem(answer.getId(), other.getId()).getName());
+        UserDto again = userService.create(UserDto.builder().name("Owner").email("owner@purge.ru").build());
+        assertTrue(again.getId() > owner.getId());
+    }
+
+    // подтвержденные бронирования одной вещи не пересекаются: на Postgres это запрещает ограничение
+    private void insertBooking(long bookerId, long itemId, int week) {
+        LocalDateTime start = LocalDateTime.now().minusWeeks(week + 1);
+        jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, booker_id, item_id, owner_id, status) " +
+                "SELECT ?, ?, ?, id, owner_id, 'APPROVED' FROM items WHERE id = ?", Timestamp.valueOf(start),
+                Timestamp.valueOf(start.plusDays(1)), bookerId, itemId);
+    }
+
+    private long count(String sql, long id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+}
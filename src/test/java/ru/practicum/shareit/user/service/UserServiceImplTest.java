@@ -5,13 +5,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 
 
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -122,8 +123,21 @@ class UserServiceImplTest {
     @Test
     void shouldThrowEmailExceptionTest() {
         userService.create(saveUserDto("Jack", "jack@mail.com"));
-        Exception exception = assertThrows(DataIntegrityViolationException.class,
+        Exception exception = assertThrows(ConflictException.class,
                 () -> userService.create(saveUserDto("Jack", "jack@mail.com")));
+        assertEquals("Пользователь с email jack@mail.com уже существует", exception.getMessage());
+        assertThrows(ConflictException.class, () -> userService.create(saveUserDto("Jacky", " Jack@Mail.com")));
+    }
+
+    @Test
+    void shouldNotUpdateToTakenEmailTest() {
+        userService.create(saveUserDto("Jack", "jack@mail.com"));
+        UserDto other = userService.create(saveUserDto("John", "john@mail.com"));
+
+        assertThrows(ConflictException.class,
+                () -> userService.update(saveUserDto(null, "jack@mail.com"), other.getId()));
+        UserDto updated = userService.update(saveUserDto(null, "JOHN@mail.com"), other.getId());
+        assertEquals("JOHN@mail.com", updated.getEmail());
     }
 
     @Test
@@ -135,4 +149,26 @@ class UserServiceImplTest {
                 User.class).getResultList();
         assertThat(users.size(), equalTo(3));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetPagesAfterIdTest() {
+        addUsers();
+        List<UserDto> firstPage = userService.getUsers(0, 2);
+        List<UserDto> secondPage = userService.getUsers(firstPage.get(1).getId(), 2);
+
+        assertThat(firstPage.size(), equalTo(2));
+        assertThat(firstPage.get(0).getName(), equalTo("Roma"));
+        assertThat(secondPage.size(), equalTo(1));
+        assertThat(secondPage.get(0).getName(), equalTo("Vlad"));
+    }
+
+    @Test
+    void shouldStreamAllUsersTest() {
+        addUsers();
+        List<UserDto> streamed = new ArrayList<>();
+        long count = userService.streamAllUsers(streamed::add);
+
+        assertThat(count, equalTo(3L));
+        assertThat(streamed, equalTo(userService.getAllUsers()));
+    }
+}
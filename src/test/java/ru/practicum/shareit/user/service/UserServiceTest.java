@@ -6,10 +6,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.EntityNotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.request.service.ItemRequestFeedCache;
+import ru.practicum.shareit.request.service.OpenRequestIndex;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserExportRepository;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.util.List;
@@ -24,13 +28,24 @@ import static ru.practicum.shareit.user.UserMapper.toUser;
 class UserServiceTest {
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private UserExportRepository userExportRepository;
+    @Mock
+    private UserExistenceIndex userExistenceIndex;
+    @Mock
+    private UserEmailIndex userEmailIndex;
+    @Mock
+    private OpenRequestIndex openRequestIndex;
+    @Mock
+    private ItemRequestFeedCache itemRequestFeedCache;
     private UserService userService;
     private UserDto userDto;
     private User user;
 
     @BeforeEach
     void initialize() {
-        userService = new UserServiceImpl(userRepository);
+        userService = new UserServiceImpl(userRepository, userExportRepository, userExistenceIndex,
+                userEmailIndex, openRequestIndex, itemRequestFeedCache);
         userDto = UserDto.builder()
                 .id(1L)
                 .name("Pasha")
@@ -57,6 +72,14 @@ class UserServiceTest {
 
     }
 
+    @Test
+    void saveUserWithTakenEmailSkipsInsertTest() {
+        when(userEmailIndex.reserve(userDto.getEmail(), null)).thenThrow(new ConflictException("taken"));
+
+        assertThrows(ConflictException.class, () -> userService.create(userDto));
+        verify(userRepository, never()).save(any());
+    }
+
     @Test
     void updateUserNameTest() {
         UserDto userDto1 = UserDto.builder().id(1L).name("Vlad").email(null).build();
@@ -121,8 +144,22 @@ class UserServiceTest {
     void deleteTest() {
         when(userRepository.save(any())).thenReturn(user);
         UserDto dto = userService.create(userDto);
+        when(userRepository.markDeleted(dto.getId())).thenReturn(1);
         userService.deleteUserById(dto.getId());
-        verify(userRepository, times(1)).deleteById(user.getId());
+        verify(userRepository, times(1)).markDeleted(user.getId());
+        verify(userRepository, never()).deleteById(any());
+        verify(userExistenceIndex, times(1)).onDeleted(user.getId());
+        verify(openRequestIndex, times(1)).removeRequester(user.getId());
+    }
+
+    @Test
+    void deleteMissingUserTest() {
+        when(userRepository.markDeleted(999L)).thenReturn(0);
+
+        Exception exception = assertThrows(EntityNotFoundException.class, () -> userService.deleteUserById(999L));
+
+        assertEquals("Пользователь с id 999 не существует", exception.getMessage());
+        verifyNoInteractions(userExistenceIndex);
     }
 
     @Test
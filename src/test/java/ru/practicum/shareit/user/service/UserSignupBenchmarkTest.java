@@ -0,0 +1,82 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Регистрация с повторяющимися email: вставка с нарушением ограничения uc_users_email против отказа по индексу.
+ * Отказ по индексу — это попадание в UserEmailIndex и подтверждающий индексный запрос в БД.
+ * Запуск: mvn test -Pbenchmark (по умолчанию 20000 регистраций, иначе -Dshareit.benchmark.signups=N)
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserSignupBenchmarkTest {
+    private static final int EMAILS = 100;
+
+    private final int total = Integer.getInteger("shareit.benchmark.signups", 20_000);
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void fill() {
+        for (int i = 0; i < EMAILS; i++) {
+            userService.create(UserDto.builder().name("user " + i).email("user" + i + "@bench.ru").build());
+        }
+    }
+
+    @Test
+    void duplicateSignupsAreRejectedBeforeInsert() {
+        int constraintRejected = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            User user = new User();
+            user.setName("copy " + i);
+            user.setEmail("user" + i % EMAILS + "@bench.ru");
+            try {
+                transactionTemplate.executeWithoutResult(status -> userRepository.saveAndFlush(user));
+            } catch (DataIntegrityViolationException e) {
+                constraintRejected++;
+            }
+        }
+        long constraintNanos = System.nanoTime() - started;
+
+        int indexRejected = 0;
+        started = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            try {
+                userService.create(UserDto.builder().name("copy " + i).email("USER" + i % EMAILS + "@bench.ru").build());
+            } catch (ConflictException e) {
+                indexRejected++;
+            }
+        }
+        long indexNanos = System.nanoTime() - started;
+
+        log.info("Benchmark: signups={} constraint={} us/op index={} us/op", total,
+                constraintNanos / total / 1000.0, indexNanos / total / 1000.0);
+        assertEquals(total, constraintRejected);
+        assertEquals(total, indexRejected);
+        assertEquals(EMAILS, userRepository.count());
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.shareit.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void shouldExpireWithinOneTickAcrossLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 8, START);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (long key = 0; key < 2000; key++) {
+            long deadline = START + (long) (random.nextDouble() * TICK * 8 * 8 * 8 * 4);
+            deadlines.add(deadline);
+            wheel.schedule(key, deadline);
+        }
+
+        int fired = 0;
+        for (long now = START; fired < deadlines.size(); now += TICK / 2) {
+            for (Long key : wheel.advance(now)) {
+                long deadline = deadlines.get(key.intValue());
+                assertTrue(deadline < now + TICK, "сработал раньше тика: " + key);
+                assertTrue(deadline >= now - TICK, "сработал с опозданием: " + key);
+                fired++;
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldNotFireCanceledAndRescheduledKeys() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 8, START);
+        wheel.schedule(1L, START + 5 * TICK);
+        wheel.schedule(2L, START + 100 * TICK);
+        wheel.schedule(3L, START + 200 * TICK);
+
+        assertTrue(wheel.cancel(2L));
+        assertFalse(wheel.cancel(2L));
+        wheel.schedule(3L, START + 10 * TICK);
+
+        assertEquals(List.of(1L), wheel.advance(START + 6 * TICK));
+        assertEquals(List.of(3L), wheel.advance(START + 300 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void shouldReturnOverdueKeysOnNextAdvance() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 8, START);
+        wheel.schedule(1L, START - 60 * TICK);
+        wheel.schedule(2L, START - 30 * TICK);
+        assertTrue(wheel.cancel(2L));
+
+        assertEquals(List.of(1L), wheel.advance(START));
+        assertEquals(List.of(), wheel.advance(START + TICK));
+    }
+}